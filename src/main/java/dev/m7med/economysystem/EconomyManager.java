@@ -1,62 +1,77 @@
 package dev.m7med.economysystem;
 
+import dev.m7med.economysystem.event.BalanceChangeEvent;
+import dev.m7med.economysystem.event.BalanceObserver;
+import dev.m7med.economysystem.storage.AccountIndex;
+import dev.m7med.economysystem.storage.NameCompletions;
+import dev.m7med.economysystem.storage.PendingCredits;
+import dev.m7med.economysystem.storage.SchemaMigrations;
+import dev.m7med.economysystem.storage.SqlWork;
+import dev.m7med.economysystem.storage.Uuids;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import org.bukkit.Bukkit;
-import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
 
 public class EconomyManager {
 
+    private final Plugin plugin;
     private final Connection connection;
-    private final FileConfiguration config;
-    private final String systemName;
-    private final String currencyName;
-    private final int defaultBalance;
-    private final int defaultTop;
-    private final String currencyNamePlural;
+    private volatile Settings settings;
 
     private final ConcurrentHashMap<UUID, Double> balanceCache = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<UUID, String> usernameCache = new ConcurrentHashMap<>();
-    private static volatile boolean dataChanged = false;
-
-    public static Component get(String key, Map<String, String> placeholders, String defaultMessage) {
-        String raw = EconomySystem.getInstance().getConfig().getString("messages." + key, defaultMessage);
-
-        for(Map.Entry<String, String> entry : placeholders.entrySet()) {
-            raw = raw.replace("%" + (String)entry.getKey() + "%", (CharSequence)entry.getValue());
-        }
-
-        return MiniMessage.miniMessage().deserialize(raw);
+    private final AccountIndex accountIndex;
+    private final NameCompletions nameCompletions = new NameCompletions();
+    private final List<BalanceObserver> observers = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<QueuedCredit> queuedCredits = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<UUID, Long> queuedMinor = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Change> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger delivering = new AtomicInteger();
+    private volatile Predicate<UUID> frozen = uuid -> false;
+    private volatile boolean dataChanged = false;
+    private volatile boolean indexLoaded = false;
+
+    public Component get(String key, Map<String, String> placeholders, String defaultMessage) {
+        return settings.message(key, placeholders, defaultMessage);
     }
 
-    public static Component get(String key, String defaultMessage) {
-        String raw = EconomySystem.getInstance().getConfig().getString("messages." + key, defaultMessage);
-        return MiniMessage.miniMessage().deserialize(raw);
+    public Component get(String key, String defaultMessage) {
+        return settings.message(key, defaultMessage);
     }
-    public EconomyManager(String path) {
+    public EconomyManager(Plugin plugin, String path) {
+        this.plugin = plugin;
         try {
-            config = EconomySystem.getInstance().getConfig();
-            systemName = config.getString("SystemName");
-            currencyName = config.getString("CurrencyName");
-            currencyNamePlural = config.getString("CurrencyNamePlural");
-            defaultBalance = config.getInt("DefaultBalance");
-            defaultTop = config.getInt("DefaultTop");
+            settings = Settings.load(plugin.getConfig());
 
             connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+            SchemaMigrations.migrate(connection, path, plugin.getLogger());
             Statement statement = connection.createStatement();
-            statement.execute("CREATE TABLE IF NOT EXISTS players (" +
-                    "uuid TEXT PRIMARY KEY," +
-                    "balance REAL DEFAULT 0," +
-                    "username TEXT NOT NULL)");
+            try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM players")) {
+                accountIndex = new AccountIndex(count.next() ? count.getInt(1) : 0);
+            }
             statement.close();
 
+            loadAccountIndex();
             startAutoSave();
 
         } catch (SQLException e) {
@@ -64,74 +79,232 @@ public class EconomyManager {
         }
     }
 
+    private record Loaded(Double stored, PendingCredits.Summary credits) {
+    }
+
+    /**
+     * Caches a joining player's account. Credits received while offline are added to the row in
+     * the same transaction, and the player gets one message summing them up.
+     */
     public void loadPlayer(UUID uuid, String username) {
-        Bukkit.getScheduler().runTaskAsynchronously(EconomySystem.getInstance(), () -> {
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
             String sql = "SELECT balance FROM players WHERE uuid = ?";
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, uuid.toString());
-                try (ResultSet result = statement.executeQuery()) {
-                    if (result.next()) {
-                        double balance = result.getDouble("balance");
-                        balanceCache.put(uuid, balance);
+            try {
+                // Read and publish under the write lock, so a direct write to the stored row
+                // either lands before this read or finds the account already cached.
+                inTransaction(connection -> {
+                    Long stored;
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        statement.setBytes(1, Uuids.toBytes(uuid));
+                        try (ResultSet result = statement.executeQuery()) {
+                            stored = result.next() ? result.getLong("balance") : null;
+                        }
+                    }
+                    PendingCredits.Summary credits = PendingCredits.take(connection, uuid);
+                    if (stored == null || credits.unapplied() == 0) {
+                        return new Loaded(stored == null ? null : Money.fromMinor(stored), credits);
+                    }
+                    try (PreparedStatement update = connection.prepareStatement("UPDATE players SET balance = ? WHERE uuid = ?")) {
+                        update.setLong(1, stored + credits.unapplied());
+                        update.setBytes(2, Uuids.toBytes(uuid));
+                        update.executeUpdate();
+                    }
+                    return new Loaded(Money.fromMinor(stored + credits.unapplied()), credits);
+                }, loaded -> {
+                    nameCompletions.add(username);
+                    if (loaded.stored() != null) {
+                        index(uuid, username, loaded.stored());
+                        balanceCache.put(uuid, loaded.stored());
                         usernameCache.put(uuid, username);
                     } else {
-                        balanceCache.put(uuid, (double) defaultBalance);
+                        double balance = settings.defaultBalance() + Money.fromMinor(loaded.credits().unapplied());
+                        index(uuid, username, balance);
+                        balanceCache.put(uuid, balance);
                         usernameCache.put(uuid, username);
                         dataChanged = true;
                     }
-                }
+                    if (loaded.credits().count() > 0) notifyCredits(uuid, loaded.credits());
+                });
             } catch (SQLException e) {
-                EconomySystem.getInstance().getLogger().severe("Failed to load player: " + e.getMessage());
+                plugin.getLogger().severe("Failed to load player: " + e.getMessage());
             }
         });
     }
 
-    private void startAutoSave() {
-        Bukkit.getScheduler().runTaskTimerAsynchronously(EconomySystem.getInstance(), () -> {
-            if (dataChanged) {
-                saveAllToDatabase();
-                dataChanged = false;
-            }
-        }, 1200L, 1200L);
+    private void notifyCredits(UUID uuid, PendingCredits.Summary credits) {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("amount", formatAmount(Money.fromMinor(credits.total())));
+        placeholders.put("count", String.valueOf(credits.count()));
+        Component message = get("Offline-Credits", placeholders,
+                "<green>While you were away you received <yellow>%amount% <green>in %count% payments");
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            Player player = plugin.getServer().getPlayer(uuid);
+            if (player != null) player.sendMessage(message);
+        });
     }
-    public void unloadPlayer(UUID uuid) {
-        Bukkit.getScheduler().runTaskAsynchronously(EconomySystem.getInstance(), () -> {
-            if (balanceCache.containsKey(uuid)) {
-                String sql = "INSERT OR REPLACE INTO players (uuid, balance, username) VALUES (?, ?, ?)";
-                try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                    statement.setString(1, uuid.toString());
-                    statement.setDouble(2, balanceCache.get(uuid));
-                    statement.setString(3, usernameCache.get(uuid));
-                    statement.executeUpdate();
-                } catch (SQLException e) {
-                    EconomySystem.getInstance().getLogger().severe("Failed to save player data before unloading: " + e.getMessage());
-                }
 
-                balanceCache.remove(uuid);
-                usernameCache.remove(uuid);
+    /**
+     * Streams every stored account into the off-heap index so offline lookups never hit the database.
+     * Accounts already indexed by a join or a balance change during the load are left alone.
+     */
+    private void loadAccountIndex() {
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            long started = System.nanoTime();
+            List<String> usernames = new ArrayList<>(accountIndex.size());
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(
+                         "SELECT uuid, balance + " + PendingCredits.UNAPPLIED_SQL + " AS balance, username, last_seen FROM players")) {
+                while (result.next()) {
+                    String username = result.getString("username");
+                    accountIndex.putIfAbsent(Uuids.fromBytes(result.getBytes("uuid")),
+                            username, Money.fromMinor(result.getLong("balance")), result.getLong("last_seen"));
+                    usernames.add(username);
+                }
+            } catch (SQLException | IllegalArgumentException e) {
+                plugin.getLogger().severe("Failed to load account index: " + e.getMessage());
+                return;
             }
+            indexLoaded = true;
+            nameCompletions.rebuild(usernames, this::holdsName);
+            plugin.getLogger().info(String.format("Indexed %d accounts in %d ms (%d KB off-heap)",
+                    accountIndex.size(), (System.nanoTime() - started) / 1_000_000, accountIndex.offHeapBytes() / 1024));
         });
     }
-    private void saveAllToDatabase() {
-        String sql = "INSERT OR REPLACE INTO players (uuid, balance, username) VALUES (?, ?, ?)";
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            for (Map.Entry<UUID, Double> entry : balanceCache.entrySet()) {
-                UUID uuid = entry.getKey();
-                statement.setString(1, uuid.toString());
-                statement.setDouble(2, entry.getValue());
-                statement.setString(3, usernameCache.get(uuid));
-                statement.addBatch();
+
+    private void startAutoSave() {
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flush, 1200L, 1200L);
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flushCredits, 20L, 20L);
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin,
+                () -> nameCompletions.compact(this::holdsName), 1200L, 1200L);
+    }
+    public void unloadPlayer(UUID uuid) {
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            if (!balanceCache.containsKey(uuid)) return;
+            try {
+                inTransaction(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(SAVE_SQL)) {
+                        bindSave(statement, uuid, balanceCache.get(uuid), System.currentTimeMillis());
+                        statement.executeUpdate();
+                    }
+                    return null;
+                }, ignored -> {
+                    balanceCache.remove(uuid);
+                    usernameCache.remove(uuid);
+                });
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to save player data before unloading: " + e.getMessage());
             }
-            statement.executeBatch();
+        });
+    }
+    /**
+     * Writes every cached balance to the database if anything changed since the last save.
+     * The flag is cleared before writing so changes made during the save are picked up next time.
+     */
+    public void flush() {
+        flushCredits();
+        if (!dataChanged) return;
+        dataChanged = false;
+        try {
+            saveAllToDatabase();
         } catch (SQLException e) {
-            EconomySystem.getInstance().getLogger().severe("Failed to save to database: " + e.getMessage());
+            plugin.getLogger().severe("Failed to save to database: " + e.getMessage());
         }
     }
 
-    public void closeConnection() {
-        if (dataChanged) {
-            saveAllToDatabase();
+    /**
+     * Writes every cached balance whether or not anything changed, and returns the balances
+     * written. A balance that later differs from the one returned changed after the save.
+     */
+    public Map<UUID, Double> saveCached() throws SQLException {
+        flushCredits();
+        dataChanged = false;
+        return saveAllToDatabase();
+    }
+
+    private Map<UUID, Double> saveAllToDatabase() throws SQLException {
+        long now = System.currentTimeMillis();
+        Map<UUID, Double> saved = new HashMap<>();
+        try {
+            inTransaction(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(SAVE_SQL)) {
+                    for (Map.Entry<UUID, Double> entry : balanceCache.entrySet()) {
+                        bindSave(statement, entry.getKey(), entry.getValue(), now);
+                        statement.addBatch();
+                        saved.put(entry.getKey(), entry.getValue());
+                    }
+                    statement.executeBatch();
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            dataChanged = true;
+            throw e;
         }
+        return saved;
+    }
+
+    /**
+     * Upsert of a cached account. Cached accounts belong to online players, so saving one also
+     * refreshes its last-seen time.
+     */
+    private static final String SAVE_SQL = "INSERT INTO players (uuid, balance, username, last_seen) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (uuid) DO UPDATE SET balance = excluded.balance, username = excluded.username, last_seen = excluded.last_seen";
+
+    private void bindSave(PreparedStatement statement, UUID uuid, double balance, long lastSeen) throws SQLException {
+        statement.setBytes(1, Uuids.toBytes(uuid));
+        statement.setLong(2, Money.toMinor(balance));
+        statement.setString(3, storedName(uuid));
+        statement.setLong(4, lastSeen);
+    }
+
+    /**
+     * The name column is NOT NULL; accounts created through Vault without a known name
+     * fall back to their UUID so one of them cannot fail the whole batch.
+     */
+    private String storedName(UUID uuid) {
+        String name = getAccountName(uuid);
+        return name != null ? name : uuid.toString();
+    }
+
+    public <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        return inTransaction(work, null);
+    }
+
+    /**
+     * Runs {@code work} as one transaction on the shared connection. Every database write in the
+     * plugin goes through here, so no other thread's statements can land inside the transaction.
+     * {@code afterCommit} runs before the lock is released, letting callers update the cache
+     * without an auto-save slipping in between. Balance changes it makes reach observers and
+     * listeners after the lock is released.
+     */
+    public <T> T inTransaction(SqlWork<T> work, Consumer<T> afterCommit) throws SQLException {
+        try {
+            return runTransaction(work, afterCommit);
+        } finally {
+            deliverChanges();
+        }
+    }
+
+    private <T> T runTransaction(SqlWork<T> work, Consumer<T> afterCommit) throws SQLException {
+        synchronized (connection) {
+            T result;
+            connection.setAutoCommit(false);
+            try {
+                result = work.run(connection);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            if (afterCommit != null) afterCommit.accept(result);
+            return result;
+        }
+    }
+
+    public void closeConnection() {
+        flush();
         try {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
@@ -145,46 +318,428 @@ public class EconomyManager {
         return balanceCache.containsKey(uuid);
     }
 
+    /**
+     * Caches a new account with the default balance. Does nothing for an account that is already
+     * registered, so a stored balance is never replaced by the default.
+     */
     public void createAccount(UUID uuid, String name) {
-        if (hasAccount(uuid)) return;
+        if (isRegistered(uuid)) return;
 
+        int defaultBalance = settings.defaultBalance();
+        index(uuid, name, defaultBalance);
         balanceCache.put(uuid, (double) defaultBalance);
         usernameCache.put(uuid, name);
+        nameCompletions.add(name);
         dataChanged = true;
+        deliverChanges();
+    }
+
+    /**
+     * Indexes an account about to be cached, reporting it to observers as new or as a balance change.
+     * Runs before the cache entry exists, so no cached change to the account can interleave.
+     */
+    private void index(UUID uuid, String name, double balance) {
+        if (accountIndex.contains(uuid)) {
+            changed(uuid, null, balance, BalanceChangeEvent.Cause.SET);
+        } else {
+            pendingChanges.add(new Change(uuid, 0, balance, null));
+        }
+        accountIndex.put(uuid, name, balance);
+    }
+
+    /**
+     * Whether the account exists anywhere, online or offline. Answered from memory.
+     */
+    /**
+     * Whether the account is cached, indexed or, while the index is still loading at startup, stored.
+     */
+    public boolean isRegistered(UUID uuid) {
+        if (balanceCache.containsKey(uuid) || accountIndex.contains(uuid)) return true;
+        return !indexLoaded && isStored(uuid);
+    }
+
+    /**
+     * Looks for the account's row. A failed lookup counts as stored, so callers never create an
+     * account over one that may exist.
+     */
+    private boolean isStored(UUID uuid) {
+        // A plain read under the lock rather than inTransaction, so it is safe inside a transaction too.
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM players WHERE uuid = ?")) {
+                statement.setBytes(1, Uuids.toBytes(uuid));
+                try (ResultSet result = statement.executeQuery()) {
+                    return result.next();
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to look up account " + uuid + ": " + e.getMessage());
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Case-insensitive lookup of a registered account by its last known name, or {@code null}.
+     */
+    public UUID findAccount(String name) {
+        return accountIndex.findByName(name);
+    }
+
+    /**
+     * Registered names starting with {@code prefix}, ignoring case, online or not.
+     */
+    public List<String> completeNames(String prefix, int limit) {
+        return nameCompletions.complete(prefix, limit, this::holdsName);
+    }
+
+    /**
+     * Whether some account is currently known by {@code name}; false for names left behind by a rename.
+     */
+    private boolean holdsName(String name) {
+        return accountIndex.findByName(name) != null;
+    }
+
+    public String getAccountName(UUID uuid) {
+        String name = usernameCache.get(uuid);
+        return name != null ? name : accountIndex.getName(uuid);
+    }
+
+    public AccountIndex getAccountIndex() {
+        return accountIndex;
+    }
+
+    public Logger getLogger() {
+        return plugin.getLogger();
     }
 
     public int getDefaultBalance() {
-        return defaultBalance;
+        return settings.defaultBalance();
     }
 
     public int getDefaultTop() {
-        return defaultTop;
+        return settings.defaultTop();
+    }
+
+    /**
+     * The current settings. Read it once and use that snapshot for the whole operation.
+     */
+    public Settings settings() {
+        return settings;
+    }
+
+    /**
+     * Re-reads config.yml from disk and swaps in a fresh settings snapshot. Main thread only.
+     */
+    public void reloadSettings() {
+        plugin.reloadConfig();
+        settings = Settings.load(plugin.getConfig());
     }
 
     public double getBalance(UUID uuid) {
-        return balanceCache.getOrDefault(uuid, 0.0);
+        Double cached = balanceCache.get(uuid);
+        if (cached != null) return cached;
+        Long queued = queuedMinor.get(uuid);
+        double stored = accountIndex.getBalance(uuid, 0.0);
+        return queued == null ? stored : stored + Money.fromMinor(queued);
     }
 
+    /**
+     * Sets a cached account's balance. Fails for accounts that are not loaded; their stored
+     * balance can only be set through the {@code EconomyService}.
+     */
     public boolean setBalance(UUID uuid, double amount) {
         if (amount < 0) return false;
 
-        balanceCache.put(uuid, amount);
+        boolean[] applied = new boolean[1];
+        balanceCache.computeIfPresent(uuid, (key, current) -> {
+            applied[0] = true;
+            return changed(key, current, amount, BalanceChangeEvent.Cause.SET);
+        });
+        if (!applied[0]) return false;
         dataChanged = true;
+        deliverChanges();
         return true;
     }
 
     public boolean deposit(UUID uuid, double amount) {
+        return deposit(uuid, amount, BalanceChangeEvent.Cause.DEPOSIT);
+    }
+
+    private boolean deposit(UUID uuid, double amount, BalanceChangeEvent.Cause cause) {
         if (amount <= 0) return false;
 
-        double balance = getBalance(uuid);
-        return setBalance(uuid, balance + amount);
+        boolean[] applied = new boolean[1];
+        balanceCache.computeIfPresent(uuid, (key, current) -> {
+            applied[0] = true;
+            return changed(key, current, current + amount, cause);
+        });
+        if (!applied[0]) {
+            // Not loaded (or unloaded since the caller checked): caching just the amount would
+            // overwrite the stored balance on the next save, so deliver it as an offline credit.
+            depositOffline(uuid, null, amount);
+            return true;
+        }
+        dataChanged = true;
+        deliverChanges();
+        return true;
     }
 
+    /**
+     * Withdraws on the player's behalf. Fails while the account is frozen.
+     */
     public boolean withdraw(UUID uuid, double amount) {
-        if (amount <= 0 || !has(uuid, amount)) return false;
+        return withdraw(uuid, amount, BalanceChangeEvent.Cause.WITHDRAW, true);
+    }
+
+    /**
+     * Withdraws on staff's behalf, ignoring a freeze so flagged funds can be taken back.
+     */
+    public boolean adminWithdraw(UUID uuid, double amount) {
+        return withdraw(uuid, amount, BalanceChangeEvent.Cause.WITHDRAW, false);
+    }
+
+    private boolean withdraw(UUID uuid, double amount, BalanceChangeEvent.Cause cause, boolean checkFreeze) {
+        if (amount <= 0 || checkFreeze && isFrozen(uuid)) return false;
+
+        // The check and the subtraction run inside the same compute so two concurrent
+        // withdrawals can never both pass against the same starting balance.
+        boolean[] withdrawn = new boolean[1];
+        balanceCache.computeIfPresent(uuid, (key, current) -> {
+            if (current < amount) return current;
+            withdrawn[0] = true;
+            return changed(key, current, current - amount, cause);
+        });
+        if (!withdrawn[0]) return false;
+        dataChanged = true;
+        deliverChanges();
+        return true;
+    }
+
+    /**
+     * Moves money between two accounts. The withdrawal is checked and applied first,
+     * so a failed transfer never leaves the receiver credited.
+     */
+    public boolean transfer(UUID from, UUID to, double amount) {
+        if (from.equals(to) || !withdraw(from, amount, BalanceChangeEvent.Cause.TRANSFER, true)) return false;
+
+        deposit(to, amount, BalanceChangeEvent.Cause.TRANSFER);
+        return true;
+    }
+
+    /**
+     * Visits every cached account, in parallel on the common pool for large caches.
+     */
+    public void forEachCached(BiConsumer<UUID, Double> action) {
+        balanceCache.forEach(256, action);
+    }
+
+    /**
+     * Adds {@code delta} to an account only if it is still cached. Returns whether it was applied.
+     */
+    public boolean adjustCached(UUID uuid, double delta, BalanceChangeEvent.Cause cause) {
+        boolean[] applied = new boolean[1];
+        balanceCache.computeIfPresent(uuid, (key, current) -> {
+            applied[0] = true;
+            return changed(key, current, current + delta, cause);
+        });
+        if (!applied[0]) return false;
+        dataChanged = true;
+        deliverChanges();
+        return true;
+    }
+
+    /**
+     * Mirrors a balance written straight to the database into the index, unless the account is
+     * cached, in which case the cache is authoritative and will overwrite the row on its next save.
+     */
+    public void indexStoredBalance(UUID uuid, double balance, BalanceChangeEvent.Cause cause) {
+        if (balanceCache.containsKey(uuid)) return;
+        changed(uuid, null, balance, cause);
+        deliverChanges();
+    }
+
+    private record QueuedCredit(UUID uuid, String name, long amount) {
+    }
+
+    private record Delivery(Map<UUID, Long> cached, Map<UUID, Long> stored, Map<UUID, String> created) {
+    }
+
+    /**
+     * Deposits to an account that is not loaded, without touching its row. The credit is queued,
+     * appended to {@code pending_credits} with the next batch and applied when the owner loads.
+     * Accounts that were never stored are created with the default balance. Returns the balance
+     * including the credit.
+     */
+    public double depositOffline(UUID uuid, String name, double amount) {
+        long minor = Money.toMinor(amount);
+        if (minor <= 0) return getBalance(uuid);
+        boolean registered = isRegistered(uuid);
+        queuedMinor.merge(uuid, minor, Long::sum);
+        queuedCredits.add(new QueuedCredit(uuid, name, minor));
+        return registered ? getBalance(uuid) : settings.defaultBalance() + Money.fromMinor(queuedMinor.getOrDefault(uuid, minor));
+    }
+
+    /**
+     * Whether offline credits to the account are queued and not yet stored.
+     */
+    public boolean hasQueuedCredits(UUID uuid) {
+        return queuedMinor.containsKey(uuid);
+    }
+
+    /**
+     * Appends queued offline credits in one transaction. A credit whose account was loaded
+     * meanwhile goes straight to the cache instead.
+     */
+    public void flushCredits() {
+        // Serialized so a caller returns only once every credit queued before the call is stored,
+        // including a batch another thread had already taken.
+        synchronized (queuedCredits) {
+            if (queuedCredits.isEmpty()) return;
+            List<QueuedCredit> batch = new ArrayList<>();
+            for (QueuedCredit credit; (credit = queuedCredits.poll()) != null; ) {
+                batch.add(credit);
+            }
+            try {
+                inTransaction(connection -> {
+                    // Checked under the write lock, so no account can load or unload until the credits are in.
+                    Map<UUID, Long> cached = new HashMap<>();
+                    Map<UUID, Long> stored = new HashMap<>();
+                    Map<UUID, String> accounts = new LinkedHashMap<>();
+                    List<PendingCredits.Credit> credits = new ArrayList<>();
+                    long now = System.currentTimeMillis();
+                    for (QueuedCredit credit : batch) {
+                        if (balanceCache.containsKey(credit.uuid())) {
+                            cached.merge(credit.uuid(), credit.amount(), Long::sum);
+                            continue;
+                        }
+                        stored.merge(credit.uuid(), credit.amount(), Long::sum);
+                        accounts.putIfAbsent(credit.uuid(), credit.name());
+                        credits.add(new PendingCredits.Credit(credit.uuid(), credit.amount(), now));
+                    }
+
+                    Map<UUID, String> created = new HashMap<>();
+                    List<UUID> candidates = new ArrayList<>();
+                    try (PreparedStatement insert = connection.prepareStatement(
+                            "INSERT INTO players (uuid, balance, username) VALUES (?, ?, ?) ON CONFLICT (uuid) DO NOTHING")) {
+                        for (Map.Entry<UUID, String> account : accounts.entrySet()) {
+                            if (accountIndex.contains(account.getKey())) continue;
+                            insert.setBytes(1, Uuids.toBytes(account.getKey()));
+                            insert.setLong(2, Money.toMinor(settings.defaultBalance()));
+                            insert.setString(3, account.getValue() != null ? account.getValue() : account.getKey().toString());
+                            insert.addBatch();
+                            candidates.add(account.getKey());
+                        }
+                        int[] inserted = insert.executeBatch();
+                        for (int i = 0; i < inserted.length; i++) {
+                            if (inserted[i] > 0) created.put(candidates.get(i), accounts.get(candidates.get(i)));
+                        }
+                    }
+                    PendingCredits.append(connection, credits);
+                    return new Delivery(cached, stored, created);
+                }, delivery -> {
+                    delivery.created().forEach((uuid, name) ->
+                            indexStoredAccount(uuid, name != null ? name : uuid.toString(), settings.defaultBalance()));
+                    delivery.stored().forEach((uuid, amount) -> {
+                        indexStoredBalance(uuid, accountIndex.getBalance(uuid, 0.0) + Money.fromMinor(amount), BalanceChangeEvent.Cause.DEPOSIT);
+                        queuedMinor.computeIfPresent(uuid, (key, queued) -> queued - amount == 0 ? null : queued - amount);
+                    });
+                    delivery.cached().forEach((uuid, amount) -> {
+                        adjustCached(uuid, Money.fromMinor(amount), BalanceChangeEvent.Cause.DEPOSIT);
+                        queuedMinor.computeIfPresent(uuid, (key, queued) -> queued - amount == 0 ? null : queued - amount);
+                    });
+                });
+            } catch (SQLException e) {
+                queuedCredits.addAll(batch);
+                plugin.getLogger().severe("Failed to store offline credits, retrying: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Indexes a stored account the index did not know about. Leaves known accounts alone.
+     */
+    public void indexStoredAccount(UUID uuid, String name, double balance) {
+        if (accountIndex.putIfAbsent(uuid, name, balance, 0L)) {
+            pendingChanges.add(new Change(uuid, 0, balance, null));
+            deliverChanges();
+        }
+        nameCompletions.add(name);
+    }
+
+    public void addObserver(BalanceObserver observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(BalanceObserver observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Frozen accounts can still receive money but every withdrawal and outgoing transfer fails.
+     */
+    public void setFreezeCheck(Predicate<UUID> frozen) {
+        this.frozen = frozen;
+    }
+
+    public boolean isFrozen(UUID uuid) {
+        return frozen.test(uuid);
+    }
 
-        double current = getBalance(uuid);
-        return setBalance(uuid, current - amount);
+    /**
+     * A queued notification. A {@code null} cause marks a newly indexed account.
+     */
+    private record Change(UUID uuid, double oldBalance, double newBalance, BalanceChangeEvent.Cause cause) {
+    }
+
+    /**
+     * Mirrors a new balance into the index and queues the notification. Runs inside the cache
+     * entry's compute, or under the database lock for stored accounts, so an account's changes
+     * are queued in the order they happened. A missing {@code current} means the account was not
+     * cached and its old balance is the indexed one. Changes to the same value are dropped.
+     */
+    private double changed(UUID uuid, Double current, double balance, BalanceChangeEvent.Cause cause) {
+        double old = current != null ? current : accountIndex.getBalance(uuid, 0.0);
+        if (old == balance) return balance;
+        accountIndex.put(uuid, null, balance);
+        pendingChanges.add(new Change(uuid, old, balance, cause));
+        return balance;
+    }
+
+    /**
+     * Hands queued changes to the observers and fires {@link BalanceChangeEvent}, in queue order
+     * and one thread at a time. Never runs under the database lock: a transaction's changes are
+     * delivered by {@link #inTransaction} once the lock is released, so a slow listener cannot
+     * hold up other writers. A thread finding delivery already in progress leaves its changes
+     * to that thread.
+     */
+    private void deliverChanges() {
+        if (Thread.holdsLock(connection) || delivering.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            for (Change change; (change = pendingChanges.poll()) != null; ) {
+                deliver(change);
+            }
+            missed = delivering.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void deliver(Change change) {
+        try {
+            if (change.cause() == null) {
+                for (BalanceObserver observer : observers) {
+                    observer.onAccountIndexed(change.uuid(), change.newBalance());
+                }
+                return;
+            }
+            for (BalanceObserver observer : observers) {
+                observer.onBalanceChange(change.uuid(), change.oldBalance(), change.newBalance(), change.cause());
+            }
+            if (BalanceChangeEvent.getHandlerList().getRegisteredListeners().length == 0) return;
+            boolean async = !plugin.getServer().isPrimaryThread();
+            plugin.getServer().getPluginManager().callEvent(new BalanceChangeEvent(
+                    change.uuid(), change.oldBalance(), change.newBalance(), change.cause(), async));
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("Balance change listener failed: " + e);
+        }
     }
 
     public boolean has(UUID uuid, double amount) {
@@ -192,47 +747,82 @@ public class EconomyManager {
     }
 
     public String formatAmount(double amount) {
-        if (amount == 1.0) {
-            return String.format("%.2f %s", amount, currencyName);
-        } else {
-            return String.format("%.2f %s", amount, currencyNamePlural);
-        }
+        return settings.formatAmount(amount);
     }
 
     public String getSystemName() {
-        return systemName;
+        return settings.systemName();
     }
 
     public String getCurrencyName() {
-        return currencyName;
+        return settings.currencyName();
     }
 
     public String getCurrencyNamePlural() {
-        return currencyNamePlural;
+        return settings.currencyNamePlural();
     }
 
-    public List<Component> getTopBalances(int limit) {
-        List<Component> topList = new ArrayList<>();
-        String rawFormat = EconomySystem.getInstance().getConfig()
-                .getString("messages.Top-Format", "<gray>#<rank> %player% has %amount%</gray>");
-
-        balanceCache.entrySet().stream()
-                .sorted((e1, e2) -> Double.compare(e2.getValue(), e1.getValue()))
-                .limit(limit)
-                .forEach(entry -> {
-                    int rank = topList.size() + 1;
-                    UUID uuid = entry.getKey();
-                    double balance = entry.getValue();
-                    String username = usernameCache.get(uuid);
-
-                    String line = rawFormat
-                            .replace("%player%", username)
-                            .replace("%amount%", formatAmount(balance))
-                            .replace("<rank>", String.valueOf(rank));
-
-                    topList.add(MiniMessage.miniMessage().deserialize(line));
-                });
+    /**
+     * Lines of the {@code limit} richest registered accounts, online or not. Candidates come from
+     * the {@code players_balance} index off the main thread; the balances shown are the live ones.
+     */
+    public CompletableFuture<List<Component>> getTopBalances(int limit) {
+        CompletableFuture<List<Component>> future = new CompletableFuture<>();
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                future.complete(formatTop(topAccounts(limit)));
+            } catch (SQLException | RuntimeException e) {
+                plugin.getLogger().severe("Failed to read top balances: " + e.getMessage());
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
 
+    /**
+     * The richest accounts with their live balances. Only cached accounts and accounts with credits can be worth something other than their row:
+     * the cached ones because their row may be stale, the credited ones because credits come on top.
+     * Both are candidates anyway, and reading one extra row per cached account leaves at least
+     * {@code limit} rows that are exact, so nobody outside the candidates can outrank them.
+     */
+    private List<Map.Entry<UUID, Double>> topAccounts(int limit) throws SQLException {
+        Set<UUID> candidates = new HashSet<>(balanceCache.keySet());
+        candidates.addAll(queuedMinor.keySet());
+        long rows = (long) limit + candidates.size();
+        inTransaction(connection -> {
+            try (PreparedStatement top = connection.prepareStatement("SELECT uuid FROM players ORDER BY balance DESC LIMIT ?")) {
+                top.setLong(1, rows);
+                try (ResultSet result = top.executeQuery()) {
+                    while (result.next()) candidates.add(Uuids.fromBytes(result.getBytes("uuid")));
+                }
+            }
+            try (Statement credited = connection.createStatement();
+                 ResultSet result = credited.executeQuery("SELECT DISTINCT uuid FROM pending_credits WHERE applied = 0")) {
+                while (result.next()) candidates.add(Uuids.fromBytes(result.getBytes("uuid")));
+            }
+            return null;
+        });
+
+        List<Map.Entry<UUID, Double>> balances = new ArrayList<>(candidates.size());
+        for (UUID uuid : candidates) {
+            if (isRegistered(uuid)) balances.add(Map.entry(uuid, getBalance(uuid)));
+        }
+        balances.sort(Map.Entry.<UUID, Double>comparingByValue().reversed());
+        return balances.subList(0, Math.min(limit, balances.size()));
+    }
+
+    private List<Component> formatTop(List<Map.Entry<UUID, Double>> top) {
+        List<Component> topList = new ArrayList<>();
+        Settings current = settings;
+        String rawFormat = current.topFormat();
+        for (Map.Entry<UUID, Double> entry : top) {
+            String username = getAccountName(entry.getKey());
+            String line = rawFormat
+                    .replace("%player%", username != null ? username : entry.getKey().toString())
+                    .replace("%amount%", current.formatAmount(entry.getValue()))
+                    .replace("<rank>", String.valueOf(topList.size() + 1));
+            topList.add(MiniMessage.miniMessage().deserialize(line));
+        }
         return topList;
     }
 }
\ No newline at end of file
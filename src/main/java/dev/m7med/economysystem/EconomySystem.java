@@ -1,11 +1,22 @@
 package dev.m7med.economysystem;
 
+import dev.m7med.economysystem.anomaly.FlowMonitor;
+import dev.m7med.economysystem.api.AsyncEconomyService;
+import dev.m7med.economysystem.api.EconomyService;
+import dev.m7med.economysystem.commands.AccountSuggestions;
 import dev.m7med.economysystem.commands.AdminCommands;
 import dev.m7med.economysystem.commands.BalTopCommand;
 import dev.m7med.economysystem.commands.BalanceCommands;
 import dev.m7med.economysystem.commands.PayCommands;
+import dev.m7med.economysystem.event.BalanceChangeStream;
+import dev.m7med.economysystem.payout.PayoutEngine;
+import dev.m7med.economysystem.placeholder.BalancePlaceholders;
+import dev.m7med.economysystem.placeholder.EconomyExpansion;
+import dev.m7med.economysystem.storage.ConsistencyChecker;
 import dev.velix.imperat.BukkitImperat;
+import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public final class EconomySystem extends JavaPlugin {
@@ -13,24 +24,61 @@ public final class EconomySystem extends JavaPlugin {
     private EconomyManager economyManager;
     private BukkitImperat imperat;
     private VaultAPI vaultAPI;
+    private PayoutEngine payoutEngine;
+    private AsyncEconomyService economyService;
     @Override
     public void onEnable() {
         // Plugin startup logic
         instance = this;
         saveDefaultConfig();
-        economyManager = new EconomyManager(getDataFolder().getAbsolutePath()+"/economy.db");
+        economyManager = new EconomyManager(this, getDataFolder().getAbsolutePath()+"/economy.db");
         vaultAPI = new VaultAPI(instance, economyManager);
-        imperat = BukkitImperat.builder(this).dependencyResolver(EconomyManager.class,()-> economyManager).build();
+        BalanceChangeStream balanceChanges = new BalanceChangeStream(this);
+        economyManager.addObserver(balanceChanges);
+        balanceChanges.start();
+        economyService = new AsyncEconomyService(this, economyManager, balanceChanges);
+        FlowMonitor flowMonitor = new FlowMonitor(this, economyManager);
+        if (getConfig().getBoolean("anomaly.enabled", true)) {
+            economyManager.addObserver(flowMonitor);
+            economyManager.setFreezeCheck(flowMonitor::isFrozen);
+            flowMonitor.start();
+        }
+        ConsistencyChecker consistencyChecker = new ConsistencyChecker(this, economyManager);
+        consistencyChecker.start();
+        getServer().getServicesManager().register(Economy.class, vaultAPI, this, ServicePriority.Normal);
+        getServer().getServicesManager().register(EconomyService.class, economyService, this, ServicePriority.Normal);
+        imperat = BukkitImperat.builder(this)
+                .dependencyResolver(EconomyManager.class,()-> economyManager)
+                .dependencyResolver(EconomyService.class,()-> economyService)
+                .dependencyResolver(FlowMonitor.class,()-> flowMonitor)
+                .dependencyResolver(ConsistencyChecker.class,()-> consistencyChecker)
+                .namedSuggestionResolver("accounts", new AccountSuggestions(economyManager))
+                .build();
         imperat.registerCommand(new BalanceCommands());
         imperat.registerCommand(new BalTopCommand());
         imperat.registerCommand(new PayCommands());
         imperat.registerCommand(new AdminCommands());
         Bukkit.getPluginManager().registerEvents(new JoinListener(economyManager), this);
+        payoutEngine = new PayoutEngine(this, economyManager);
+        payoutEngine.start();
+        BalancePlaceholders placeholders = new BalancePlaceholders(this, economyManager);
+        economyManager.addObserver(placeholders);
+        placeholders.start();
+        if (getServer().getPluginManager().isPluginEnabled("PlaceholderAPI")) {
+            new EconomyExpansion(this, placeholders).register();
+        }
     }
 
     @Override
     public void onDisable() {
         // Plugin shutdown logic
+        getServer().getServicesManager().unregisterAll(this);
+        if (economyService != null) {
+            economyService.shutdown();
+        }
+        if (economyManager != null) {
+            economyManager.closeConnection();
+        }
     }
     public static EconomySystem getInstance() {
         return instance;
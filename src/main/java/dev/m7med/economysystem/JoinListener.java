@@ -16,10 +16,9 @@ public class JoinListener implements Listener {
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
-        if (!economyManager.hasAccount(player.getUniqueId())) {
-            economyManager.createAccount(player.getUniqueId(), player.getName());
-        }
-        economyManager.loadPlayer(event.getPlayer().getUniqueId(), player.getName());
+        // loadPlayer creates the account if it was never stored. Caching a default balance here first
+        // would let credits delivered before the load land on a value the load then replaces.
+        economyManager.loadPlayer(player.getUniqueId(), player.getName());
     }
 @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
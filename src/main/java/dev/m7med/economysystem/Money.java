@@ -0,0 +1,22 @@
+package dev.m7med.economysystem;
+
+/**
+ * Conversions between display amounts and integer minor units (cents).
+ * Two fractional digits, matching {@link VaultAPI#fractionalDigits()}.
+ */
+public final class Money {
+
+    public static final int FRACTIONAL_DIGITS = 2;
+    public static final long MINOR_PER_UNIT = 100L;
+
+    private Money() {
+    }
+
+    public static long toMinor(double amount) {
+        return Math.round(amount * MINOR_PER_UNIT);
+    }
+
+    public static double fromMinor(long minor) {
+        return minor / (double) MINOR_PER_UNIT;
+    }
+}
@@ -0,0 +1,119 @@
+package dev.m7med.economysystem;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable snapshot of the top-level values in config.yml, resolved once when the config is
+ * loaded. {@link EconomyManager} keeps the current snapshot in a volatile field and swaps it
+ * as a whole on {@code /aeco reload}, so an operation that reads it once sees either the old
+ * or the new settings, never a mix.
+ *
+ * <p>Messages without placeholders are parsed into components up front. Messages with
+ * placeholders keep their template and are parsed per use, since the values differ each time.
+ */
+public final class Settings {
+
+    private static final String DEFAULT_TOP_FORMAT = "<gray>#<rank> %player% has %amount%</gray>";
+
+    private final String systemName;
+    private final String currencyName;
+    private final String currencyNamePlural;
+    private final int defaultBalance;
+    private final int defaultTop;
+    private final String topFormat;
+    private final Map<String, String> templates;
+    private final Map<String, Component> components;
+    // Parsed fallback texts, keyed on the text itself.
+    private final ConcurrentHashMap<String, Component> defaults = new ConcurrentHashMap<>();
+
+    private Settings(String systemName, String currencyName, String currencyNamePlural, int defaultBalance,
+                     int defaultTop, String topFormat, Map<String, String> templates, Map<String, Component> components) {
+        this.systemName = systemName;
+        this.currencyName = currencyName;
+        this.currencyNamePlural = currencyNamePlural;
+        this.defaultBalance = defaultBalance;
+        this.defaultTop = defaultTop;
+        this.topFormat = topFormat;
+        this.templates = templates;
+        this.components = components;
+    }
+
+    public static Settings load(FileConfiguration config) {
+        Map<String, String> templates = new HashMap<>();
+        Map<String, Component> components = new HashMap<>();
+        ConfigurationSection messages = config.getConfigurationSection("messages");
+        if (messages != null) {
+            for (String key : messages.getKeys(false)) {
+                String raw = messages.getString(key);
+                if (raw == null) continue;
+                templates.put(key, raw);
+                if (raw.indexOf('%') < 0) components.put(key, MiniMessage.miniMessage().deserialize(raw));
+            }
+        }
+        // Older configs and the original reader used "DefaultBalance"; the shipped config says "defaultBalance".
+        int defaultBalance = config.contains("defaultBalance")
+                ? config.getInt("defaultBalance") : config.getInt("DefaultBalance");
+        return new Settings(
+                config.getString("SystemName", "EconomySystem"),
+                config.getString("CurrencyName", "Dollar"),
+                config.getString("CurrencyNamePlural", "Dollars"),
+                Math.max(0, defaultBalance),
+                Math.max(1, config.getInt("DefaultTop", 5)),
+                templates.getOrDefault("Top-Format", DEFAULT_TOP_FORMAT),
+                Map.copyOf(templates),
+                Map.copyOf(components));
+    }
+
+    public String systemName() {
+        return systemName;
+    }
+
+    public String currencyName() {
+        return currencyName;
+    }
+
+    public String currencyNamePlural() {
+        return currencyNamePlural;
+    }
+
+    public int defaultBalance() {
+        return defaultBalance;
+    }
+
+    public int defaultTop() {
+        return defaultTop;
+    }
+
+    public String topFormat() {
+        return topFormat;
+    }
+
+    public String formatAmount(double amount) {
+        return String.format("%.2f %s", amount, amount == 1.0 ? currencyName : currencyNamePlural);
+    }
+
+    public Component message(String key, String defaultMessage) {
+        Component component = components.get(key);
+        if (component != null) return component;
+        String template = templates.get(key);
+        if (template != null) return MiniMessage.miniMessage().deserialize(template);
+        // Missing keys fall back to the caller's default. The component depends on that text only, so
+        // the cache is keyed on it: callers passing different defaults for one key each get their own.
+        return defaults.computeIfAbsent(defaultMessage, text -> MiniMessage.miniMessage().deserialize(text));
+    }
+
+    public Component message(String key, Map<String, String> placeholders, String defaultMessage) {
+        String raw = templates.getOrDefault(key, defaultMessage);
+        for (Map.Entry<String, String> entry : placeholders.entrySet()) {
+            raw = raw.replace("%" + entry.getKey() + "%", entry.getValue());
+        }
+        return MiniMessage.miniMessage().deserialize(raw);
+    }
+}
@@ -4,6 +4,7 @@ import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
 
 import java.util.List;
 import java.util.UUID;
@@ -11,9 +12,9 @@ import java.util.UUID;
 public class VaultAPI implements Economy {
 
     private final EconomyManager economyManager;
-    private final EconomySystem plugin;
+    private final Plugin plugin;
 
-    public VaultAPI(EconomySystem plugin, EconomyManager economyManager) {
+    public VaultAPI(Plugin plugin, EconomyManager economyManager) {
         this.plugin = plugin;
         this.economyManager = economyManager;
     }
@@ -39,6 +40,10 @@ public class VaultAPI implements Economy {
     }
 
     private UUID getUUIDFromName(String playerName) {
+        // Registered accounts resolve from the in-memory index; only unknown names
+        // fall through to Bukkit, which may block on a profile lookup.
+        UUID known = economyManager.findAccount(playerName);
+        if (known != null) return known;
         OfflinePlayer player = Bukkit.getOfflinePlayer(playerName);
         return player.getUniqueId();
     }
@@ -62,7 +67,7 @@ public class VaultAPI implements Economy {
     public boolean hasAccount(String s) {
         try {
             UUID uuid = getUUIDFromName(s);
-            return economyManager.hasAccount(uuid);
+            return economyManager.isRegistered(uuid);
         } catch (Exception e) {
             return false;
         }
@@ -70,7 +75,7 @@ public class VaultAPI implements Economy {
 
     @Override
     public boolean hasAccount(OfflinePlayer offlinePlayer) {
-        return economyManager.hasAccount(offlinePlayer.getUniqueId());
+        return economyManager.isRegistered(offlinePlayer.getUniqueId());
     }
 
     @Override
@@ -143,10 +148,15 @@ public class VaultAPI implements Economy {
             }
 
             if (!economyManager.hasAccount(uuid)) {
-                return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, "Player does not have an account");
+                return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, economyManager.isRegistered(uuid)
+                        ? "Player is offline, use EconomyService to withdraw from offline accounts"
+                        : "Player does not have an account");
             }
 
             double balance = economyManager.getBalance(uuid);
+            if (economyManager.isFrozen(uuid)) {
+                return new EconomyResponse(0, balance, EconomyResponse.ResponseType.FAILURE, "Account is frozen");
+            }
             if (!economyManager.has(uuid, v)) {
                 return new EconomyResponse(0, balance, EconomyResponse.ResponseType.FAILURE, "Insufficient funds");
             }
@@ -173,10 +183,15 @@ public class VaultAPI implements Economy {
             }
 
             if (!economyManager.hasAccount(uuid)) {
-                return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, "Player does not have an account");
+                return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, economyManager.isRegistered(uuid)
+                        ? "Player is offline, use EconomyService to withdraw from offline accounts"
+                        : "Player does not have an account");
             }
 
             double balance = economyManager.getBalance(uuid);
+            if (economyManager.isFrozen(uuid)) {
+                return new EconomyResponse(0, balance, EconomyResponse.ResponseType.FAILURE, "Account is frozen");
+            }
             if (!economyManager.has(uuid, v)) {
                 return new EconomyResponse(0, balance, EconomyResponse.ResponseType.FAILURE, "Insufficient funds");
             }
@@ -213,8 +228,9 @@ public class VaultAPI implements Economy {
             }
 
             if (!economyManager.hasAccount(uuid)) {
-                OfflinePlayer player = Bukkit.getOfflinePlayer(playerName);
-                economyManager.createAccount(uuid, player.getName());
+                // Offline: queue a credit rather than caching a default balance that would overwrite the stored one.
+                double newBalance = economyManager.depositOffline(uuid, playerName, amount);
+                return new EconomyResponse(amount, newBalance, EconomyResponse.ResponseType.SUCCESS, "");
             }
 
             double balance = economyManager.getBalance(uuid);
@@ -241,7 +257,8 @@ public class VaultAPI implements Economy {
             }
 
             if (!economyManager.hasAccount(uuid)) {
-                economyManager.createAccount(uuid, offlinePlayer.getName());
+                double newBalance = economyManager.depositOffline(uuid, offlinePlayer.getName(), amount);
+                return new EconomyResponse(amount, newBalance, EconomyResponse.ResponseType.SUCCESS, "");
             }
 
             double balance = economyManager.getBalance(uuid);
@@ -332,7 +349,7 @@ public class VaultAPI implements Economy {
     public boolean createPlayerAccount(String s) {
         try {
             UUID uuid = getUUIDFromName(s);
-            if (economyManager.hasAccount(uuid)) {
+            if (economyManager.isRegistered(uuid)) {
                 return false;
             }
             economyManager.createAccount(uuid, s);
@@ -346,7 +363,7 @@ public class VaultAPI implements Economy {
     public boolean createPlayerAccount(OfflinePlayer offlinePlayer) {
         try {
             UUID uuid = offlinePlayer.getUniqueId();
-            if (economyManager.hasAccount(uuid)) {
+            if (economyManager.isRegistered(uuid)) {
                 return false;
             }
             economyManager.createAccount(uuid, offlinePlayer.getName());
@@ -0,0 +1,224 @@
+package dev.m7med.economysystem.anomaly;
+
+import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Money;
+import dev.m7med.economysystem.event.BalanceChangeEvent;
+import dev.m7med.economysystem.event.BalanceObserver;
+import net.kyori.adventure.text.Component;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches every balance change for bursts that look like duplication exploits or money
+ * being funneled between accounts.
+ *
+ * <p>Each account that moved money recently has a {@link FlowWindow} of inflow, outflow and
+ * change count over {@code anomaly.window-seconds}. When a total crosses its limit the
+ * account is flagged once per window: admins with {@code eco.alerts} are told in game and,
+ * with {@code anomaly.freeze}, the account cannot send or spend money for a while; staff can
+ * still take money from it. The largest receivers and senders are tracked with
+ * {@link HeavyHitters} in fixed memory.
+ *
+ * <p>The observer runs on the mutation path: one map lookup, a few array updates under an
+ * uncontended lock and a heavy-hitter update. Changes are delivered to observers one thread
+ * at a time, so the heavy-hitter locks only ever meet the window rotation; the soak
+ * {@code FlowBenchmark} times this path. Alerts are only queued there and delivered from
+ * the main thread. Scheduled payouts and {@code /aeco set} are not counted.
+ */
+public class FlowMonitor implements BalanceObserver {
+
+    public enum Reason {
+        INFLOW,
+        OUTFLOW,
+        RATE
+    }
+
+    private record Alert(UUID account, Reason reason, long inflow, long outflow, int changes, boolean frozen) {
+    }
+
+    private final Plugin plugin;
+    private final EconomyManager economyManager;
+    private final int windowSeconds;
+    private final int buckets;
+    private final long bucketNanos;
+    private final long maxInflow;
+    private final long maxOutflow;
+    private final int maxChanges;
+    private final boolean freeze;
+    private final long freezeMillis;
+    private final int topSize;
+    private final int maxTracked;
+
+    private final ConcurrentHashMap<UUID, FlowWindow> windows = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Long> frozenUntil = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Alert> alerts = new ConcurrentLinkedQueue<>();
+    private final HeavyHitters receivers;
+    private final HeavyHitters senders;
+
+    public FlowMonitor(Plugin plugin, EconomyManager economyManager) {
+        this.plugin = plugin;
+        this.economyManager = economyManager;
+        ConfigurationSection config = plugin.getConfig().getConfigurationSection("anomaly");
+        if (config == null) config = plugin.getConfig().createSection("anomaly");
+        this.windowSeconds = Math.max(1, config.getInt("window-seconds", 60));
+        this.buckets = Math.max(2, config.getInt("buckets", 6));
+        this.bucketNanos = Math.max(1, TimeUnit.SECONDS.toNanos(windowSeconds) / buckets);
+        this.maxInflow = Money.toMinor(config.getDouble("max-inflow", 1_000_000));
+        this.maxOutflow = Money.toMinor(config.getDouble("max-outflow", 1_000_000));
+        this.maxChanges = config.getInt("max-transactions", 200);
+        this.freeze = config.getBoolean("freeze", false);
+        this.freezeMillis = TimeUnit.MINUTES.toMillis(Math.max(1, config.getLong("freeze-minutes", 10)));
+        this.topSize = Math.max(1, config.getInt("top-k", 10));
+        this.maxTracked = Math.max(1, config.getInt("max-tracked-accounts", 20_000));
+        // Extra counters make the top-K estimate tighter; memory stays fixed either way.
+        this.receivers = new HeavyHitters(topSize * 4);
+        this.senders = new HeavyHitters(topSize * 4);
+    }
+
+    public void start() {
+        long bucketTicks = Math.max(1, windowSeconds * 20L / buckets);
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::sweep, bucketTicks, bucketTicks);
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::rotate, windowSeconds * 20L, windowSeconds * 20L);
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::deliverAlerts, 20L, 20L);
+    }
+
+    @Override
+    public void onBalanceChange(UUID account, double oldBalance, double newBalance, BalanceChangeEvent.Cause cause) {
+        if (cause == BalanceChangeEvent.Cause.SET || cause == BalanceChangeEvent.Cause.PAYOUT) return;
+        long delta = Money.toMinor(newBalance) - Money.toMinor(oldBalance);
+        if (delta == 0) return;
+        long in = Math.max(delta, 0);
+        long out = Math.max(-delta, 0);
+
+        (delta > 0 ? receivers : senders).add(account, Math.abs(delta));
+
+        FlowWindow window = windows.get(account);
+        if (window == null) {
+            // Past the cap only the heavy hitters see new accounts, so memory stays bounded under a flood.
+            if (windows.size() >= maxTracked) return;
+            window = windows.computeIfAbsent(account, key -> new FlowWindow(buckets));
+        }
+
+        long bucket = System.nanoTime() / bucketNanos;
+        Alert alert = null;
+        synchronized (window) {
+            window.add(bucket, in, out);
+            Reason reason = window.windowInflow > maxInflow ? Reason.INFLOW
+                    : window.windowOutflow > maxOutflow ? Reason.OUTFLOW
+                    : window.windowChanges > maxChanges ? Reason.RATE
+                    : null;
+            if (reason != null && window.mayAlert(bucket)) {
+                alert = new Alert(account, reason, window.windowInflow, window.windowOutflow, window.windowChanges, freeze);
+            }
+        }
+        if (alert != null) {
+            if (freeze) frozenUntil.put(account, System.currentTimeMillis() + freezeMillis);
+            alerts.add(alert);
+        }
+    }
+
+    /**
+     * Whether the account is frozen and must not send or spend money.
+     */
+    public boolean isFrozen(UUID account) {
+        if (frozenUntil.isEmpty()) return false;
+        Long until = frozenUntil.get(account);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    public boolean unfreeze(UUID account) {
+        return frozenUntil.remove(account) != null;
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /**
+     * Largest receivers in the last completed window, as account and volume in money units.
+     */
+    public Map<UUID, Double> topReceivers() {
+        return volumes(receivers.completed());
+    }
+
+    public Map<UUID, Double> topSenders() {
+        return volumes(senders.completed());
+    }
+
+    private static Map<UUID, Double> volumes(List<HeavyHitters.Entry> entries) {
+        Map<UUID, Double> volumes = new LinkedHashMap<>();
+        for (HeavyHitters.Entry entry : entries) {
+            volumes.put(entry.account(), Money.fromMinor(entry.volume()));
+        }
+        return volumes;
+    }
+
+    /**
+     * Drops windows of accounts that have been quiet for a whole window, and expired freezes.
+     */
+    private void sweep() {
+        long bucket = System.nanoTime() / bucketNanos;
+        windows.forEach((account, window) -> {
+            boolean idle;
+            synchronized (window) {
+                idle = window.idle(bucket);
+            }
+            if (idle) windows.remove(account, window);
+        });
+        long now = System.currentTimeMillis();
+        frozenUntil.values().removeIf(until -> until <= now);
+    }
+
+    private void rotate() {
+        receivers.rotate(topSize);
+        senders.rotate(topSize);
+    }
+
+    private void deliverAlerts() {
+        Alert alert;
+        while ((alert = alerts.poll()) != null) {
+            String name = economyManager.getAccountName(alert.account());
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("player", name != null ? name : alert.account().toString());
+            placeholders.put("window", String.valueOf(windowSeconds));
+            placeholders.put("count", String.valueOf(alert.changes()));
+            placeholders.put("minutes", String.valueOf(TimeUnit.MILLISECONDS.toMinutes(freezeMillis)));
+
+            Component message = switch (alert.reason()) {
+                case INFLOW -> {
+                    placeholders.put("amount", economyManager.formatAmount(Money.fromMinor(alert.inflow())));
+                    yield economyManager.get("Alert-Inflow", placeholders,
+                            "<red>[Eco] %player% received %amount% in %window%s");
+                }
+                case OUTFLOW -> {
+                    placeholders.put("amount", economyManager.formatAmount(Money.fromMinor(alert.outflow())));
+                    yield economyManager.get("Alert-Outflow", placeholders,
+                            "<red>[Eco] %player% sent %amount% in %window%s");
+                }
+                case RATE -> economyManager.get("Alert-Rate", placeholders,
+                        "<red>[Eco] %player% made %count% transactions in %window%s");
+            };
+            plugin.getLogger().warning(String.format("Suspicious money flow: %s %s (in %.2f, out %.2f, %d changes in %ds)%s",
+                    placeholders.get("player"), alert.reason(), Money.fromMinor(alert.inflow()), Money.fromMinor(alert.outflow()),
+                    alert.changes(), windowSeconds, alert.frozen() ? ", frozen" : ""));
+
+            Component frozen = alert.frozen() ? economyManager.get("Alert-Frozen", placeholders,
+                    "<red>[Eco] %player% is frozen for %minutes% minutes. <gray>/aeco unfreeze %player%") : null;
+            for (Player player : plugin.getServer().getOnlinePlayers()) {
+                if (!player.hasPermission("eco.alerts")) continue;
+                player.sendMessage(message);
+                if (frozen != null) player.sendMessage(frozen);
+            }
+        }
+    }
+}
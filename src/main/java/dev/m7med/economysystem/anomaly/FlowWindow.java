@@ -0,0 +1,74 @@
+package dev.m7med.economysystem.anomaly;
+
+import java.util.Arrays;
+
+/**
+ * Money received, money sent and number of changes of one account over a sliding window
+ * made of fixed time buckets. A bucket is reused, and cleared, once its slot comes around
+ * again. Not thread-safe; {@link FlowMonitor} synchronizes on the window.
+ */
+final class FlowWindow {
+
+    private final long[] bucketIds;
+    private final long[] inflow;
+    private final long[] outflow;
+    private final int[] changes;
+    private long lastBucket;
+    private long quietUntil = Long.MIN_VALUE;
+
+    long windowInflow;
+    long windowOutflow;
+    int windowChanges;
+
+    FlowWindow(int buckets) {
+        this.bucketIds = new long[buckets];
+        this.inflow = new long[buckets];
+        this.outflow = new long[buckets];
+        this.changes = new int[buckets];
+        Arrays.fill(bucketIds, Long.MIN_VALUE);
+    }
+
+    /**
+     * Adds one change and recomputes the window totals.
+     */
+    void add(long bucket, long in, long out) {
+        int slot = (int) Math.floorMod(bucket, (long) bucketIds.length);
+        if (bucketIds[slot] != bucket) {
+            bucketIds[slot] = bucket;
+            inflow[slot] = 0;
+            outflow[slot] = 0;
+            changes[slot] = 0;
+        }
+        inflow[slot] += in;
+        outflow[slot] += out;
+        changes[slot]++;
+        lastBucket = bucket;
+
+        long oldest = bucket - bucketIds.length;
+        long totalIn = 0;
+        long totalOut = 0;
+        int totalChanges = 0;
+        for (int i = 0; i < bucketIds.length; i++) {
+            if (bucketIds[i] <= oldest) continue;
+            totalIn += inflow[i];
+            totalOut += outflow[i];
+            totalChanges += changes[i];
+        }
+        windowInflow = totalIn;
+        windowOutflow = totalOut;
+        windowChanges = totalChanges;
+    }
+
+    boolean idle(long bucket) {
+        return lastBucket <= bucket - bucketIds.length;
+    }
+
+    /**
+     * Whether an alert may be raised now. After one, the account stays quiet for a full window.
+     */
+    boolean mayAlert(long bucket) {
+        if (bucket < quietUntil) return false;
+        quietUntil = bucket + bucketIds.length;
+        return true;
+    }
+}
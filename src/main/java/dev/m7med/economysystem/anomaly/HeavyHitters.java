@@ -0,0 +1,76 @@
+package dev.m7med.economysystem.anomaly;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Approximate top accounts by volume using the Space-Saving algorithm: a fixed number of
+ * counters, where a new account takes over the smallest counter and inherits its value as
+ * possible error. Any account holding more than {@code 1/capacity} of the volume is
+ * guaranteed to have a counter, whatever the number of accounts seen.
+ *
+ * <p>Counters are plain arrays scanned in one pass, which for a few dozen entries beats a
+ * hash map plus a separate search for the minimum and allocates nothing.
+ */
+final class HeavyHitters {
+
+    record Entry(UUID account, long volume, long error) {
+    }
+
+    private final long[] mostSigBits;
+    private final long[] leastSigBits;
+    private final long[] volumes;
+    private final long[] errors;
+    private int used;
+    private List<Entry> completed = List.of();
+
+    HeavyHitters(int capacity) {
+        this.mostSigBits = new long[capacity];
+        this.leastSigBits = new long[capacity];
+        this.volumes = new long[capacity];
+        this.errors = new long[capacity];
+    }
+
+    synchronized void add(UUID account, long volume) {
+        long msb = account.getMostSignificantBits();
+        long lsb = account.getLeastSignificantBits();
+        int smallest = 0;
+        for (int i = 0; i < used; i++) {
+            if (mostSigBits[i] == msb && leastSigBits[i] == lsb) {
+                volumes[i] += volume;
+                return;
+            }
+            if (volumes[i] < volumes[smallest]) smallest = i;
+        }
+        if (used < volumes.length) {
+            set(used++, msb, lsb, volume, 0);
+        } else {
+            set(smallest, msb, lsb, volumes[smallest] + volume, volumes[smallest]);
+        }
+    }
+
+    private void set(int index, long msb, long lsb, long volume, long error) {
+        mostSigBits[index] = msb;
+        leastSigBits[index] = lsb;
+        volumes[index] = volume;
+        errors[index] = error;
+    }
+
+    /**
+     * Closes the current period: keeps its top {@code k} for {@link #completed()} and starts counting afresh.
+     */
+    synchronized void rotate(int k) {
+        List<Entry> entries = new ArrayList<>(used);
+        for (int i = 0; i < used; i++) {
+            entries.add(new Entry(new UUID(mostSigBits[i], leastSigBits[i]), volumes[i], errors[i]));
+        }
+        entries.sort((a, b) -> Long.compare(b.volume(), a.volume()));
+        completed = List.copyOf(entries.subList(0, Math.min(k, entries.size())));
+        used = 0;
+    }
+
+    synchronized List<Entry> completed() {
+        return completed;
+    }
+}
@@ -0,0 +1,358 @@
+package dev.m7med.economysystem.api;
+
+import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Money;
+import dev.m7med.economysystem.event.BalanceChangeEvent;
+import dev.m7med.economysystem.event.BalanceChangeStream;
+import dev.m7med.economysystem.event.BalanceUpdate;
+import dev.m7med.economysystem.storage.PendingCredits;
+import dev.m7med.economysystem.storage.Uuids;
+import org.bukkit.plugin.Plugin;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * {@link EconomyService} backed by {@link EconomyManager}.
+ *
+ * <p>Each account has a queue of pending operations drained by one worker at a time, which
+ * keeps per-account order and coalesces everything that queued up meanwhile: reads share one
+ * lookup, and for offline accounts all queued deposits and withdrawals become a single row
+ * update. Batches of only deposits to an offline account are appended as pending credits
+ * instead, so the owner gets them summed up on join. Cached accounts are changed in memory as usual.
+ */
+public class AsyncEconomyService implements EconomyService {
+
+    private static final class Pending {
+        final BalanceOperation.Type type;
+        final double amount;
+        // Staff withdrawals go through even while the account is frozen.
+        final boolean admin;
+        final CompletableFuture<TransactionResult> future = new CompletableFuture<>();
+
+        Pending(BalanceOperation.Type type, double amount, boolean admin) {
+            this.type = type;
+            this.amount = amount;
+            this.admin = admin;
+        }
+    }
+
+    private static final class AccountQueue {
+        static final int QUEUED = 0;
+        static final int SCHEDULE = 1;
+        static final int CLOSED = 2;
+
+        private List<Pending> pending = new ArrayList<>();
+        private boolean scheduled;
+        private boolean closed;
+
+        synchronized int offer(Pending operation) {
+            if (closed) return CLOSED;
+            pending.add(operation);
+            if (scheduled) return QUEUED;
+            scheduled = true;
+            return SCHEDULE;
+        }
+
+        /**
+         * Takes everything queued, or closes the queue if nothing is left.
+         */
+        synchronized List<Pending> take() {
+            if (pending.isEmpty()) {
+                closed = true;
+                return null;
+            }
+            List<Pending> operations = pending;
+            pending = new ArrayList<>();
+            return operations;
+        }
+    }
+
+    private final Plugin plugin;
+    private final EconomyManager economyManager;
+    private final BalanceChangeStream changes;
+    private final ConcurrentHashMap<UUID, AccountQueue> queues = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final Executor mainThread;
+
+    public AsyncEconomyService(Plugin plugin, EconomyManager economyManager, BalanceChangeStream changes) {
+        this.plugin = plugin;
+        this.economyManager = economyManager;
+        this.changes = changes;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "EconomySystem Async #" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.mainThread = task -> {
+            if (plugin.getServer().isPrimaryThread()) task.run();
+            else plugin.getServer().getScheduler().runTask(plugin, task);
+        };
+    }
+
+    @Override
+    public CompletableFuture<Double> getBalance(UUID account) {
+        return submit(account, null, 0, false).thenApply(TransactionResult::balance);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> has(UUID account, double amount) {
+        return getBalance(account).thenApply(balance -> balance >= amount);
+    }
+
+    @Override
+    public CompletableFuture<TransactionResult> deposit(UUID account, double amount) {
+        return submit(account, BalanceOperation.Type.DEPOSIT, amount, false);
+    }
+
+    @Override
+    public CompletableFuture<TransactionResult> withdraw(UUID account, double amount) {
+        return submit(account, BalanceOperation.Type.WITHDRAW, amount, false);
+    }
+
+    @Override
+    public CompletableFuture<TransactionResult> adminWithdraw(UUID account, double amount) {
+        return submit(account, BalanceOperation.Type.WITHDRAW, amount, true);
+    }
+
+    @Override
+    public CompletableFuture<TransactionResult> set(UUID account, double amount) {
+        return submit(account, BalanceOperation.Type.SET, amount, true);
+    }
+
+    @Override
+    public CompletableFuture<TransactionResult> transfer(UUID from, UUID to, double amount) {
+        if (from.equals(to)) {
+            return CompletableFuture.completedFuture(TransactionResult.failure(amount, 0, TransactionResult.Failure.SAME_ACCOUNT));
+        }
+        return withdraw(from, amount).thenCompose(debit -> {
+            if (!debit.success()) return CompletableFuture.completedFuture(debit);
+            return deposit(to, amount).thenCompose(credit -> credit.success()
+                    ? CompletableFuture.completedFuture(debit)
+                    : deposit(from, amount).thenApply(refund ->
+                    TransactionResult.failure(amount, refund.balance(), credit.failure(), credit.error())));
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<TransactionResult>> batch(List<BalanceOperation> operations) {
+        List<CompletableFuture<TransactionResult>> futures = new ArrayList<>(operations.size());
+        for (BalanceOperation operation : operations) {
+            futures.add(submit(operation.account(), operation.type(), operation.amount(), false));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            List<TransactionResult> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<TransactionResult> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    @Override
+    public void subscribe(Consumer<List<BalanceUpdate>> subscriber) {
+        changes.subscribe(subscriber);
+    }
+
+    @Override
+    public void unsubscribe(Consumer<List<BalanceUpdate>> subscriber) {
+        changes.unsubscribe(subscriber);
+    }
+
+    @Override
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Stops accepting work and waits briefly for queued operations to finish.
+     */
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Async economy operations were still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<TransactionResult> submit(UUID account, BalanceOperation.Type type, double amount, boolean admin) {
+        if (type == BalanceOperation.Type.SET ? !(amount >= 0) || Double.isInfinite(amount)
+                : type != null && (!(amount > 0) || Double.isInfinite(amount))) {
+            return CompletableFuture.completedFuture(TransactionResult.failure(amount, 0, TransactionResult.Failure.INVALID_AMOUNT,
+                    type == BalanceOperation.Type.SET ? "Amount cannot be negative" : "Amount must be positive"));
+        }
+        Pending operation = new Pending(type, amount, admin);
+        boolean[] schedule = new boolean[1];
+        // A closed queue has run everything it was given and is about to leave the map; replacing
+        // it here keeps per-account order without waiting for its worker.
+        AccountQueue queue = queues.compute(account, (key, existing) -> {
+            if (existing != null) {
+                int state = existing.offer(operation);
+                if (state != AccountQueue.CLOSED) {
+                    schedule[0] = state == AccountQueue.SCHEDULE;
+                    return existing;
+                }
+            }
+            AccountQueue fresh = new AccountQueue();
+            fresh.offer(operation);
+            schedule[0] = true;
+            return fresh;
+        });
+        if (schedule[0]) {
+            workers.execute(() -> drain(account, queue));
+        }
+        return operation.future;
+    }
+
+    private void drain(UUID account, AccountQueue queue) {
+        List<Pending> operations;
+        while ((operations = queue.take()) != null) {
+            try {
+                apply(account, operations);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Async economy operation failed for " + account + ": " + e.getMessage());
+                for (Pending operation : operations) {
+                    operation.future.complete(TransactionResult.failure(operation.amount, 0,
+                            TransactionResult.Failure.ERROR, "An error occurred: " + e.getMessage()));
+                }
+            }
+        }
+        // Leaves a queue that a submitter already put in place of this closed one.
+        queues.remove(account, queue);
+    }
+
+    private void apply(UUID account, List<Pending> operations) throws SQLException {
+        if (!economyManager.isRegistered(account)) {
+            for (Pending operation : operations) {
+                operation.future.complete(TransactionResult.failure(operation.amount, 0, TransactionResult.Failure.NO_ACCOUNT));
+            }
+            return;
+        }
+
+        boolean readOnly = operations.stream().allMatch(operation -> operation.type == null);
+        if (readOnly) {
+            double balance = economyManager.getBalance(account);
+            for (Pending operation : operations) {
+                operation.future.complete(TransactionResult.success(0, balance));
+            }
+            return;
+        }
+
+        // Credits from the last second may still be queued in memory; store them so the row and
+        // pending_credits below account for them.
+        if (economyManager.hasQueuedCredits(account)) economyManager.flushCredits();
+
+        List<TransactionResult> results = new ArrayList<>(operations.size());
+        boolean[] cached = new boolean[1];
+        economyManager.inTransaction(connection -> {
+            // Checked under the write lock, so the account cannot be loaded or unloaded until we are done.
+            if (economyManager.hasAccount(account)) {
+                cached[0] = true;
+                return null;
+            }
+            Long stored;
+            try (PreparedStatement read = connection.prepareStatement("SELECT balance FROM players WHERE uuid = ?")) {
+                read.setBytes(1, Uuids.toBytes(account));
+                try (ResultSet result = read.executeQuery()) {
+                    stored = result.next() ? result.getLong("balance") : null;
+                }
+            }
+            if (stored == null) {
+                for (Pending operation : operations) {
+                    results.add(TransactionResult.failure(operation.amount, 0, TransactionResult.Failure.NO_ACCOUNT));
+                }
+                return null;
+            }
+
+            boolean depositsOnly = operations.stream().allMatch(operation ->
+                    operation.type == null || operation.type == BalanceOperation.Type.DEPOSIT);
+            // Earlier credits count towards the balance. Anything that may lower it folds them into the row first.
+            long credits = depositsOnly
+                    ? PendingCredits.unapplied(connection, account)
+                    : PendingCredits.settle(connection, account);
+            double balance = Money.fromMinor(stored + credits);
+            for (Pending operation : operations) {
+                if (operation.type == BalanceOperation.Type.DEPOSIT) {
+                    balance += operation.amount;
+                } else if (operation.type == BalanceOperation.Type.SET) {
+                    balance = operation.amount;
+                } else if (operation.type == BalanceOperation.Type.WITHDRAW) {
+                    if (!operation.admin && economyManager.isFrozen(account)) {
+                        results.add(TransactionResult.failure(operation.amount, balance, TransactionResult.Failure.FROZEN));
+                        continue;
+                    }
+                    if (balance < operation.amount) {
+                        results.add(TransactionResult.failure(operation.amount, balance, TransactionResult.Failure.INSUFFICIENT_FUNDS));
+                        continue;
+                    }
+                    balance -= operation.amount;
+                }
+                results.add(TransactionResult.success(operation.amount, balance));
+            }
+            if (depositsOnly) {
+                long now = System.currentTimeMillis();
+                List<PendingCredits.Credit> deposits = new ArrayList<>();
+                for (Pending operation : operations) {
+                    if (operation.type != null) deposits.add(new PendingCredits.Credit(account, Money.toMinor(operation.amount), now));
+                }
+                PendingCredits.append(connection, deposits);
+            } else if (Money.toMinor(balance) != stored) {
+                try (PreparedStatement write = connection.prepareStatement("UPDATE players SET balance = ? WHERE uuid = ?")) {
+                    write.setLong(1, Money.toMinor(balance));
+                    write.setBytes(2, Uuids.toBytes(account));
+                    write.executeUpdate();
+                }
+            }
+            return balance;
+        }, balance -> {
+            if (cached[0]) {
+                for (Pending operation : operations) {
+                    results.add(applyCached(account, operation));
+                }
+            } else if (balance != null) {
+                BalanceChangeEvent.Cause cause = operations.stream().anyMatch(operation -> operation.type == BalanceOperation.Type.SET)
+                        ? BalanceChangeEvent.Cause.SET
+                        : balance >= economyManager.getBalance(account)
+                        ? BalanceChangeEvent.Cause.DEPOSIT : BalanceChangeEvent.Cause.WITHDRAW;
+                economyManager.indexStoredBalance(account, balance, cause);
+            }
+        });
+
+        for (int i = 0; i < operations.size(); i++) {
+            operations.get(i).future.complete(results.get(i));
+        }
+    }
+
+    private TransactionResult applyCached(UUID account, Pending operation) {
+        if (operation.type == null) {
+            return TransactionResult.success(0, economyManager.getBalance(account));
+        }
+        boolean success = switch (operation.type) {
+            case DEPOSIT -> economyManager.deposit(account, operation.amount);
+            case WITHDRAW -> operation.admin
+                    ? economyManager.adminWithdraw(account, operation.amount)
+                    : economyManager.withdraw(account, operation.amount);
+            case SET -> economyManager.setBalance(account, operation.amount);
+        };
+        double balance = economyManager.getBalance(account);
+        if (success) return TransactionResult.success(operation.amount, balance);
+        return TransactionResult.failure(operation.amount, balance, !operation.admin && economyManager.isFrozen(account)
+                ? TransactionResult.Failure.FROZEN : TransactionResult.Failure.INSUFFICIENT_FUNDS);
+    }
+}
@@ -0,0 +1,27 @@
+package dev.m7med.economysystem.api;
+
+import java.util.UUID;
+
+/**
+ * A single deposit, withdrawal or balance overwrite submitted through {@link EconomyService#batch}.
+ */
+public record BalanceOperation(UUID account, Type type, double amount) {
+
+    public enum Type {
+        DEPOSIT,
+        WITHDRAW,
+        SET
+    }
+
+    public static BalanceOperation deposit(UUID account, double amount) {
+        return new BalanceOperation(account, Type.DEPOSIT, amount);
+    }
+
+    public static BalanceOperation withdraw(UUID account, double amount) {
+        return new BalanceOperation(account, Type.WITHDRAW, amount);
+    }
+
+    public static BalanceOperation set(UUID account, double amount) {
+        return new BalanceOperation(account, Type.SET, amount);
+    }
+}
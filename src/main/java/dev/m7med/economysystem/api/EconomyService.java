@@ -0,0 +1,78 @@
+package dev.m7med.economysystem.api;
+
+import dev.m7med.economysystem.event.BalanceUpdate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous economy API, registered with Bukkit's {@code ServicesManager} next to the Vault provider.
+ *
+ * <pre>{@code
+ * EconomyService economy = Bukkit.getServicesManager().load(EconomyService.class);
+ * economy.deposit(seller, price)
+ *         .thenAcceptAsync(result -> notify(result), economy.mainThread());
+ * }</pre>
+ *
+ * <p>Every method works for online and offline accounts and never blocks the calling thread.
+ * Futures complete off the main thread; hop back with {@link #mainThread()} or {@link #sync}.
+ * Operations on the same account run in submission order.
+ */
+public interface EconomyService {
+
+    CompletableFuture<Double> getBalance(UUID account);
+
+    CompletableFuture<Boolean> has(UUID account, double amount);
+
+    CompletableFuture<TransactionResult> deposit(UUID account, double amount);
+
+    /**
+     * Withdraws on the player's behalf, such as a purchase. Fails while the account is frozen by
+     * the anomaly monitor.
+     */
+    CompletableFuture<TransactionResult> withdraw(UUID account, double amount);
+
+    /**
+     * Withdraws on staff's behalf, such as {@code /aeco take}. Ignores anomaly freezes, so flagged
+     * funds can be taken back without unfreezing the account first.
+     */
+    CompletableFuture<TransactionResult> adminWithdraw(UUID account, double amount);
+
+    /**
+     * Overwrites the balance. Zero is allowed, negative amounts fail.
+     */
+    CompletableFuture<TransactionResult> set(UUID account, double amount);
+
+    /**
+     * Withdraws from {@code from} and, if that succeeds, deposits to {@code to}.
+     * If the deposit fails the withdrawal is refunded.
+     */
+    CompletableFuture<TransactionResult> transfer(UUID from, UUID to, double amount);
+
+    /**
+     * Applies many operations at once. Operations on the same account are coalesced into a
+     * single database write when that account is offline. Results are in submission order.
+     */
+    CompletableFuture<List<TransactionResult>> batch(List<BalanceOperation> operations);
+
+    /**
+     * Receives balance changes once per tick on the main thread, at most one update per account
+     * with its balance before and after the tick. For every individual change, listen for
+     * {@link dev.m7med.economysystem.event.BalanceChangeEvent} instead.
+     */
+    void subscribe(Consumer<List<BalanceUpdate>> subscriber);
+
+    void unsubscribe(Consumer<List<BalanceUpdate>> subscriber);
+
+    /**
+     * Runs tasks on the server thread, immediately if already there.
+     */
+    Executor mainThread();
+
+    default <T> CompletableFuture<T> sync(CompletableFuture<T> future) {
+        return future.thenApplyAsync(value -> value, mainThread());
+    }
+}
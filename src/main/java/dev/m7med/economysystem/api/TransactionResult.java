@@ -0,0 +1,48 @@
+package dev.m7med.economysystem.api;
+
+/**
+ * Outcome of an {@link EconomyService} operation.
+ *
+ * @param success the balance changed as requested
+ * @param amount  the amount requested
+ * @param balance the account balance after the operation, or before it if it failed
+ * @param failure why the operation failed, {@link Failure#NONE} on success
+ * @param error   human-readable detail of the failure, empty on success
+ */
+public record TransactionResult(boolean success, double amount, double balance, Failure failure, String error) {
+
+    /**
+     * Reason an operation failed. Branch on this rather than on {@link #error()}, whose text may change.
+     */
+    public enum Failure {
+        NONE(""),
+        INVALID_AMOUNT("Amount must be positive"),
+        SAME_ACCOUNT("Cannot transfer to the same account"),
+        NO_ACCOUNT("Player does not have an account"),
+        FROZEN("Account is frozen"),
+        INSUFFICIENT_FUNDS("Insufficient funds"),
+        ERROR("An error occurred");
+
+        private final String message;
+
+        Failure(String message) {
+            this.message = message;
+        }
+
+        public String message() {
+            return message;
+        }
+    }
+
+    public static TransactionResult success(double amount, double balance) {
+        return new TransactionResult(true, amount, balance, Failure.NONE, "");
+    }
+
+    public static TransactionResult failure(double amount, double balance, Failure failure) {
+        return failure(amount, balance, failure, failure.message());
+    }
+
+    public static TransactionResult failure(double amount, double balance, Failure failure, String error) {
+        return new TransactionResult(false, amount, balance, failure, error);
+    }
+}
@@ -0,0 +1,29 @@
+package dev.m7med.economysystem.commands;
+
+import dev.m7med.economysystem.EconomyManager;
+import dev.velix.imperat.BukkitSource;
+import dev.velix.imperat.command.parameters.CommandParameter;
+import dev.velix.imperat.context.SuggestionContext;
+import dev.velix.imperat.resolvers.SuggestionResolver;
+
+import java.util.List;
+
+/**
+ * Tab-completes every registered account name, including offline ones.
+ * Attached to parameters with {@code @SuggestionProvider("accounts")}.
+ */
+public class AccountSuggestions implements SuggestionResolver<BukkitSource> {
+
+    private static final int LIMIT = 50;
+
+    private final EconomyManager economyManager;
+
+    public AccountSuggestions(EconomyManager economyManager) {
+        this.economyManager = economyManager;
+    }
+
+    @Override
+    public List<String> autoComplete(SuggestionContext<BukkitSource> context, CommandParameter<BukkitSource> parameter) {
+        return economyManager.completeNames(context.getArgToComplete().value(), LIMIT);
+    }
+}
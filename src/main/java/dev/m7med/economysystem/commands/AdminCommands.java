@@ -1,137 +1,258 @@
 package dev.m7med.economysystem.commands;
 
 import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Settings;
+import dev.m7med.economysystem.anomaly.FlowMonitor;
+import dev.m7med.economysystem.api.EconomyService;
+import dev.m7med.economysystem.api.TransactionResult;
+import dev.m7med.economysystem.storage.ConsistencyChecker;
 import dev.velix.imperat.BukkitSource;
 import dev.velix.imperat.annotations.Command;
 import dev.velix.imperat.annotations.Dependency;
 import dev.velix.imperat.annotations.Permission;
 import dev.velix.imperat.annotations.SubCommand;
+import dev.velix.imperat.annotations.SuggestionProvider;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.logging.Level;
 
 @Command("aeco")
 @Permission("eco.admincommands")
 public class AdminCommands {
     @Dependency
     public EconomyManager economyManager;
+    @Dependency
+    public EconomyService economyService;
+    @Dependency
+    public FlowMonitor flowMonitor;
+    @Dependency
+    public ConsistencyChecker consistencyChecker;
     @SubCommand("give")
-    public void give(BukkitSource source, Player player, double amount) {
-        economyManager.deposit(player.getUniqueId(), amount);
-
-        Map<String, String> senderPlaceholders = new HashMap<>();
-        senderPlaceholders.put("amount", String.valueOf(amount));
-        senderPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-        senderPlaceholders.put("player", player.getName());
-
-        Map<String, String> receiverPlaceholders = new HashMap<>();
-        receiverPlaceholders.put("amount", String.valueOf(amount));
-        receiverPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-        receiverPlaceholders.put("player", source.asPlayer().getName());
-
-        source.reply(economyManager.get(
-                "Give-Success",
-                senderPlaceholders,
-                "<green>You added <yellow>%amount% %currency% <green>to <aqua>%player%'s balance"
-        ));
-
-        player.sendMessage(economyManager.get(
-                "Give-Receiver",
-                receiverPlaceholders,
-                "<green>Your balance has been increased by <yellow>%amount% %currency%"
-        ));
+    public void give(BukkitSource source, @SuggestionProvider("accounts") String player, double amount) {
+        Settings settings = economyManager.settings();
+        modify(source, settings, player, target -> economyService.deposit(target, amount), (target, name) -> {
+            Map<String, String> senderPlaceholders = new HashMap<>();
+            senderPlaceholders.put("amount", String.valueOf(amount));
+            senderPlaceholders.put("currency", settings.currencyNamePlural());
+            senderPlaceholders.put("player", name);
+
+            Map<String, String> receiverPlaceholders = new HashMap<>();
+            receiverPlaceholders.put("amount", String.valueOf(amount));
+            receiverPlaceholders.put("currency", settings.currencyNamePlural());
+            receiverPlaceholders.put("player", source.isConsole() ? "Console" : source.asPlayer().getName());
+
+            source.reply(settings.message(
+                    "Give-Success",
+                    senderPlaceholders,
+                    "<green>You added <yellow>%amount% %currency% <green>to <aqua>%player%'s balance"
+            ));
+
+            notify(target, settings.message(
+                    "Give-Receiver",
+                    receiverPlaceholders,
+                    "<green>Your balance has been increased by <yellow>%amount% %currency%"
+            ));
+        });
     }
     @SubCommand("take")
-    public void take(BukkitSource source, Player player, double amount) {
-        double currentAmount = economyManager.getBalance(player.getUniqueId());
-
-        if (currentAmount < amount) {
-            Map<String, String> errorPlaceholders = new HashMap<>();
-            errorPlaceholders.put("amount", String.valueOf(amount));
-            errorPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-            errorPlaceholders.put("player", player.getName());
-
-            source.reply(economyManager.get(
-                    "Error-Take-Insufficient-Funds",
-                    errorPlaceholders,
-                    "<red>%player% doesn't have enough %currency% to take!"
+    public void take(BukkitSource source, @SuggestionProvider("accounts") String player, double amount) {
+        Settings settings = economyManager.settings();
+        modify(source, settings, player, target -> economyService.adminWithdraw(target, amount), (target, name) -> {
+            Map<String, String> senderPlaceholders = new HashMap<>();
+            senderPlaceholders.put("amount", String.valueOf(amount));
+            senderPlaceholders.put("currency", settings.currencyNamePlural());
+            senderPlaceholders.put("player", name);
+
+            Map<String, String> receiverPlaceholders = new HashMap<>();
+            receiverPlaceholders.put("amount", String.valueOf(amount));
+            receiverPlaceholders.put("currency", settings.currencyNamePlural());
+
+            source.reply(settings.message(
+                    "Take-Success",
+                    senderPlaceholders,
+                    "<green>You removed <yellow>%amount% %currency% <green>from <aqua>%player%'s balance"
             ));
-            return;
-        }
 
-        economyManager.withdraw(player.getUniqueId(), amount);
+            notify(target, settings.message(
+                    "Take-Receiver",
+                    receiverPlaceholders,
+                    "<red><aqua>%amount% %currency% <red>was taken from your balance"
+            ));
+        });
+    }
+    @SubCommand("set")
+    public void set(BukkitSource source, @SuggestionProvider("accounts") String player, double amount) {
+        Settings settings = economyManager.settings();
+        modify(source, settings, player, target -> economyService.set(target, amount), (target, name) -> {
+            Map<String, String> senderPlaceholders = new HashMap<>();
+            senderPlaceholders.put("amount", String.valueOf(amount));
+            senderPlaceholders.put("currency", settings.currencyNamePlural());
+            senderPlaceholders.put("player", name);
+
+            Map<String, String> receiverPlaceholders = new HashMap<>();
+            receiverPlaceholders.put("amount", String.valueOf(amount));
+            receiverPlaceholders.put("currency", settings.currencyNamePlural());
 
-        Map<String, String> senderPlaceholders = new HashMap<>();
-        senderPlaceholders.put("amount", String.valueOf(amount));
-        senderPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-        senderPlaceholders.put("player", player.getName());
+            source.reply(settings.message(
+                    "Set-Success",
+                    senderPlaceholders,
+                    "<green>You set <aqua>%player%'s <green>balance to <yellow>%amount% %currency%"
+            ));
 
-        Map<String, String> receiverPlaceholders = new HashMap<>();
-        receiverPlaceholders.put("amount", String.valueOf(amount));
-        receiverPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
+            notify(target, settings.message(
+                    "Set-Receiver",
+                    receiverPlaceholders,
+                    "<yellow>Your balance was set to <yellow>%amount% %currency%"
+            ));
+        });
+    }
+    @SubCommand("reset")
+    public void reset(BukkitSource source, @SuggestionProvider("accounts") String player) {
+        Settings settings = economyManager.settings();
+        modify(source, settings, player, target -> economyService.set(target, settings.defaultBalance()), (target, name) -> {
+            Map<String, String> senderPlaceholders = new HashMap<>();
+            senderPlaceholders.put("currency", settings.currencyNamePlural());
+            senderPlaceholders.put("player", name);
 
-        source.reply(economyManager.get(
-                "Take-Success",
-                senderPlaceholders,
-                "<green>You removed <yellow>%amount% %currency% <green>from <aqua>%player%'s balance"
-        ));
+            Map<String, String> receiverPlaceholders = new HashMap<>();
+            receiverPlaceholders.put("currency", settings.currencyNamePlural());
 
-        player.sendMessage(economyManager.get(
-                "Take-Receiver",
-                receiverPlaceholders,
-                "<red><aqua>%amount% %currency% <red>was taken from your balance"
-        ));
+            source.reply(settings.message(
+                    "Reset-Success",
+                    senderPlaceholders,
+                    "<green>You reset <aqua>%player%'s <green>balance to <yellow>0 %currency%"
+            ));
+
+            notify(target, settings.message(
+                    "Reset-Receiver",
+                    receiverPlaceholders,
+                    "<red>Your balance has been reset to <yellow>0 %currency%"
+            ));
+        });
     }
-    @SubCommand("set")
-    public void set(BukkitSource source, Player player, double amount) {
-        economyManager.setBalance(player.getUniqueId(), amount);
-
-        Map<String, String> senderPlaceholders = new HashMap<>();
-        senderPlaceholders.put("amount", String.valueOf(amount));
-        senderPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-        senderPlaceholders.put("player", player.getName());
-
-        Map<String, String> receiverPlaceholders = new HashMap<>();
-        receiverPlaceholders.put("amount", String.valueOf(amount));
-        receiverPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-
-        source.reply(economyManager.get(
-                "Set-Success",
-                senderPlaceholders,
-                "<green>You set <aqua>%player%'s <green>balance to <yellow>%amount% %currency%"
-        ));
-
-        player.sendMessage(economyManager.get(
-                "Set-Receiver",
-                receiverPlaceholders,
-                "<yellow>Your balance was set to <yellow>%amount% %currency%"
-        ));
+
+    @SubCommand("flow")
+    public void flow(BukkitSource source) {
+        Settings settings = economyManager.settings();
+        Map<String, String> headerPlaceholders = new HashMap<>();
+        headerPlaceholders.put("window", String.valueOf(flowMonitor.getWindowSeconds()));
+        source.reply(settings.message("Flow-Receivers", headerPlaceholders, "<gold>Top receivers in the last %window%s:"));
+        replyFlow(source, settings, flowMonitor.topReceivers());
+        source.reply(settings.message("Flow-Senders", headerPlaceholders, "<gold>Top senders in the last %window%s:"));
+        replyFlow(source, settings, flowMonitor.topSenders());
     }
-    @SubCommand("reset")
-    public void reset(BukkitSource source, Player player) {
-        economyManager.setBalance(player.getUniqueId(), economyManager.getDefaultBalance());
-
-        Map<String, String> senderPlaceholders = new HashMap<>();
-        senderPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-        senderPlaceholders.put("player", player.getName());
-
-        Map<String, String> receiverPlaceholders = new HashMap<>();
-        receiverPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-
-        source.reply(economyManager.get(
-                "Reset-Success",
-                senderPlaceholders,
-                "<green>You reset <aqua>%player%'s <green>balance to <yellow>0 %currency%"
-        ));
-
-        player.sendMessage(economyManager.get(
-                "Reset-Receiver",
-                receiverPlaceholders,
-                "<red>Your balance has been reset to <yellow>0 %currency%"
-        ));
+    @SubCommand("unfreeze")
+    public void unfreeze(BukkitSource source, @SuggestionProvider("accounts") String player) {
+        Settings settings = economyManager.settings();
+        UUID target = economyManager.findAccount(player);
+        if (target == null) {
+            source.reply(settings.message("Error-Unknown-Player", Map.of("player", player), "<red>No account found for %player%"));
+            return;
+        }
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("player", economyManager.getAccountName(target));
+        source.reply(flowMonitor.unfreeze(target)
+                ? settings.message("Unfreeze-Success", placeholders, "<green>%player% can send money again")
+                : settings.message("Error-Not-Frozen", placeholders, "<red>%player% is not frozen"));
+    }
+
+    @SubCommand("reload")
+    public void reload(BukkitSource source) {
+        economyManager.reloadSettings();
+        Settings settings = economyManager.settings();
+        source.reply(settings.message("Reload-Success", "<green>Configuration reloaded"));
+    }
+
+    @SubCommand("audit")
+    public void audit(BukkitSource source) {
+        Settings settings = economyManager.settings();
+        source.reply(settings.message("Audit-Started", "<gray>Checking cached balances against the database..."));
+        economyService.sync(consistencyChecker.audit()).whenComplete((report, error) -> {
+            if (error != null) {
+                source.reply(settings.message("Audit-Failed", "<red>The audit failed, see the console"));
+                return;
+            }
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("accounts", String.valueOf(report.accounts()));
+            placeholders.put("millis", String.valueOf(report.millis()));
+            placeholders.put("mismatches", String.valueOf(report.balanceMismatches()));
+            placeholders.put("missing", String.valueOf(report.missingRows()));
+            placeholders.put("unindexed", String.valueOf(report.unindexedRows()));
+            placeholders.put("unsaved", String.valueOf(report.unsavedCached()));
+            placeholders.put("repaired", report.repaired() ? "repaired" : "not repaired");
+            source.reply(report.discrepancies() == 0
+                    ? settings.message("Audit-Clean", placeholders, "<green>All %accounts% accounts match the database (%millis% ms)")
+                    : settings.message("Audit-Issues", placeholders,
+                    "<red>Audit of %accounts% accounts: %mismatches% balance mismatches, %missing% missing rows, " +
+                            "%unindexed% unindexed rows, %unsaved% unsaved balances (%repaired%)"));
+        });
+    }
+
+    private void replyFlow(BukkitSource source, Settings settings, Map<UUID, Double> volumes) {
+        int rank = 0;
+        for (Map.Entry<UUID, Double> entry : volumes.entrySet()) {
+            String name = economyManager.getAccountName(entry.getKey());
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("rank", String.valueOf(++rank));
+            placeholders.put("player", name != null ? name : entry.getKey().toString());
+            placeholders.put("amount", settings.formatAmount(entry.getValue()));
+            placeholders.put("frozen", flowMonitor.isFrozen(entry.getKey()) ? " (frozen)" : "");
+            source.reply(settings.message("Flow-Line", placeholders, "<gray>#%rank% %player%: <yellow>%amount%<red>%frozen%"));
+        }
+    }
+
+    private interface Success {
+        void run(UUID target, String name);
     }
 
+    /**
+     * Resolves any registered account, online or offline, runs the change through the
+     * {@link EconomyService} so offline balances are updated in the database, and reports
+     * back on the main thread.
+     */
+    private void modify(BukkitSource source, Settings settings, String player,
+                        Function<UUID, CompletableFuture<TransactionResult>> change, Success success) {
+        UUID target = economyManager.findAccount(player);
+        if (target == null) {
+            source.reply(settings.message("Error-Unknown-Player", Map.of("player", player), "<red>No account found for %player%"));
+            return;
+        }
+        String name = economyManager.getAccountName(target);
+        economyService.sync(change.apply(target)).whenComplete((result, error) -> {
+            if (error != null) {
+                economyManager.getLogger().log(Level.SEVERE, "Failed to change " + name + "'s balance", error);
+                source.reply(settings.message("Error-Command-Failed", "<red>Something went wrong, see the console"));
+                return;
+            }
+            switch (result.failure()) {
+                case NONE -> success.run(target, name);
+                case FROZEN -> source.reply(settings.message("Error-Account-Frozen", Map.of("player", name), "<red>%player%'s account is frozen"));
+                case INSUFFICIENT_FUNDS -> {
+                    Map<String, String> errorPlaceholders = new HashMap<>();
+                    errorPlaceholders.put("amount", String.valueOf(result.amount()));
+                    errorPlaceholders.put("currency", settings.currencyNamePlural());
+                    errorPlaceholders.put("player", name);
 
+                    source.reply(settings.message(
+                            "Error-Take-Insufficient-Funds",
+                            errorPlaceholders,
+                            "<red>%player% doesn't have enough %currency% to take!"
+                    ));
+                }
+                default -> source.reply(settings.message("Error-Pay-Invalid-Amount", "<red>Please enter a valid amount!"));
+            }
+        });
+    }
 
+    private void notify(UUID target, Component message) {
+        Player receiver = Bukkit.getPlayer(target);
+        if (receiver != null) receiver.sendMessage(message);
+    }
 }
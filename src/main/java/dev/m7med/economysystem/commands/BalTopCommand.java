@@ -1,6 +1,8 @@
 package dev.m7med.economysystem.commands;
 
 import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Settings;
+import dev.m7med.economysystem.api.EconomyService;
 import dev.velix.imperat.BukkitSource;
 import dev.velix.imperat.annotations.Command;
 import dev.velix.imperat.annotations.Dependency;
@@ -8,30 +10,41 @@ import dev.velix.imperat.annotations.Permission;
 import dev.velix.imperat.annotations.Usage;
 import net.kyori.adventure.text.Component;
 
-import java.util.List;
+import java.util.logging.Level;
 
 @Command("baltop")
 @Permission("eco.baltop")
 public class BalTopCommand {
     @Dependency
     private EconomyManager economyManager;
+    @Dependency
+    private EconomyService economyService;
     @Usage
 
     public void useNoNumber(BukkitSource source) {
-        List<Component> messages = economyManager.getTopBalances(economyManager.getDefaultTop());
-        for (Component msg : messages) {
-            source.reply(msg);
-        }
+        Settings settings = economyManager.settings();
+        reply(source, settings, settings.defaultTop());
     }
     @Usage
 
     public void useWithNumber(BukkitSource source,int amount) {
+        Settings settings = economyManager.settings();
         if(amount <= 0) {
-          source.reply( economyManager.get("Error-Pay-Invalid-Amount","<red>Please enter a valid amount!")); ;
+          source.reply( settings.message("Error-Pay-Invalid-Amount","<red>Please enter a valid amount!")); ;
             return;}
-        List<Component> messages = economyManager.getTopBalances(amount);
-        for (Component msg : messages) {
-            source.reply(msg);
-        }
+        reply(source, settings, amount);
+    }
+
+    private void reply(BukkitSource source, Settings settings, int amount) {
+        economyService.sync(economyManager.getTopBalances(amount)).whenComplete((messages, error) -> {
+            if (error != null) {
+                economyManager.getLogger().log(Level.SEVERE, "Failed to list the top " + amount + " balances", error);
+                source.reply(settings.message("Error-Command-Failed", "<red>Something went wrong, see the console"));
+                return;
+            }
+            for (Component msg : messages) {
+                source.reply(msg);
+            }
+        });
     }
 }
@@ -1,13 +1,14 @@
 package dev.m7med.economysystem.commands;
 
 import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Settings;
 import dev.velix.imperat.BukkitSource;
 import dev.velix.imperat.annotations.*;
 import net.kyori.adventure.text.Component;
-import org.bukkit.entity.Player;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Command({"balance","bal"})
 @Permission("eco.bal")
@@ -17,21 +18,28 @@ public class BalanceCommands {
     private EconomyManager economyManager;
     @Usage
     public void onSelf(BukkitSource sender) {
-        if(sender.isConsole()) {sender.reply(economyManager.get("Error-Console-Balance-onself","<red>Console can't have a balance"));return;}
+        Settings settings = economyManager.settings();
+        if(sender.isConsole()) {sender.reply(settings.message("Error-Console-Balance-onself","<red>Console can't have a balance"));return;}
         double bal = economyManager.getBalance(sender.asPlayer().getUniqueId());
         Map<String,String> placeholders = new HashMap<>();
         placeholders.put("amount", String.valueOf(bal));
-        Component msg = economyManager.get(" Balance-onself",placeholders,"<green>Your balance: <yellow>%amount%");
+        Component msg = settings.message("Balance-onself",placeholders,"<green>Your balance: <yellow>%amount%");
         sender.reply(msg);
     }
     @Usage
 
-    public void onOther(BukkitSource sender, Player player) {
-        double bal = economyManager.getBalance(player.getUniqueId());
+    public void onOther(BukkitSource sender, @SuggestionProvider("accounts") String player) {
+        Settings settings = economyManager.settings();
+        UUID target = economyManager.findAccount(player);
+        if (target == null) {
+            sender.reply(settings.message("Error-Unknown-Player", Map.of("player", player), "<red>No account found for %player%"));
+            return;
+        }
+        double bal = economyManager.getBalance(target);
         Map<String,String> placeholders = new HashMap<>();
         placeholders.put("amount", String.valueOf(bal));
-        placeholders.put("player", player.getName());
-        Component msg = economyManager.get("Balance-Other",placeholders,"<green>%player%'s balance: <yellow>%amount%");
+        placeholders.put("player", economyManager.getAccountName(target));
+        Component msg = settings.message("Balance-Other",placeholders,"<green>%player%'s balance: <yellow>%amount%");
         sender.reply(msg);
     }
 }
@@ -1,12 +1,17 @@
 package dev.m7med.economysystem.commands;
 
 import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Settings;
+import dev.m7med.economysystem.api.EconomyService;
 import dev.velix.imperat.BukkitSource;
 import dev.velix.imperat.annotations.*;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
 
 @Command("pay")
 @Description("Send money to another player")
@@ -14,35 +19,65 @@ import java.util.Map;
 public class PayCommands {
     @Dependency
     private EconomyManager economyManager;
+    @Dependency
+    private EconomyService economyService;
     @Usage
-    public void Pay(BukkitSource source, Player player, double amount) {
-        if(source.isConsole()) {source.reply(economyManager.get("Error-Pay-Console","<red>Console can't use pay"));return;};
-        if(source.asPlayer().getUniqueId().equals(player.getUniqueId())) {
-            source.reply(economyManager.get("Error-Pay-Onself","<red>You can't pay yourself!"));
+    public void Pay(BukkitSource source, @SuggestionProvider("accounts") String player, double amount) {
+        Settings settings = economyManager.settings();
+        if(source.isConsole()) {source.reply(settings.message("Error-Pay-Console","<red>Console can't use pay"));return;};
+        UUID target = economyManager.findAccount(player);
+        if (target == null) {
+            source.reply(settings.message("Error-Unknown-Player", Map.of("player", player), "<red>No account found for %player%"));
+            return;
+        }
+        Player sender = source.asPlayer();
+        if(sender.getUniqueId().equals(target)) {
+            source.reply(settings.message("Error-Pay-Onself","<red>You can't pay yourself!"));
             return;
         }
-        if(amount <= 0||amount > economyManager.getBalance(source.asPlayer().getUniqueId())) {
-            source.reply(economyManager.get("Error-Pay-Invalid-Amount","<red>Please enter a valid amount!"));
+        if(amount <= 0) {
+            source.reply(settings.message("Error-Pay-Invalid-Amount","<red>Please enter a valid amount!"));
             return;
         }
 
-        economyManager.withdraw(source.asPlayer().getUniqueId(), amount);
-        economyManager.deposit(player.getUniqueId(), amount);
-        Map<String, String> senderPlaceholders = new HashMap<>();
-        senderPlaceholders.put("amount", String.valueOf(amount));
-        senderPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-        senderPlaceholders.put("player", player.getName());
-        Map<String, String> receiverPlaceholders = new HashMap<>();
-        receiverPlaceholders.put("amount", String.valueOf(amount));
-        receiverPlaceholders.put("currency", economyManager.getCurrencyNamePlural());
-        receiverPlaceholders.put("player", source.asPlayer().getName());
+        String targetName = economyManager.getAccountName(target);
+        // Offline receivers are credited in the database, so the reply waits for the result.
+        economyService.sync(economyService.transfer(sender.getUniqueId(), target, amount)).whenComplete((result, error) -> {
+            if (error != null) {
+                economyManager.getLogger().log(Level.SEVERE, "Payment from " + sender.getName() + " to " + targetName + " failed", error);
+                source.reply(settings.message("Error-Command-Failed", "<red>Something went wrong, see the console"));
+                return;
+            }
+            if (!result.success()) {
+                source.reply(switch (result.failure()) {
+                    case FROZEN -> settings.message("Error-Pay-Frozen","<red>Your account is temporarily frozen.");
+                    case INSUFFICIENT_FUNDS -> settings.message("Error-Pay-Insufficient-Funds",
+                            Map.of("currency", settings.currencyNamePlural()), "<red>You don't have enough %currency% to send!");
+                    case NO_ACCOUNT -> settings.message("Error-Unknown-Player", Map.of("player", player), "<red>No account found for %player%");
+                    default -> settings.message("Error-Pay-Invalid-Amount","<red>Please enter a valid amount!");
+                });
+                return;
+            }
+
+            Map<String, String> senderPlaceholders = new HashMap<>();
+            senderPlaceholders.put("amount", String.valueOf(amount));
+            senderPlaceholders.put("currency", settings.currencyNamePlural());
+            senderPlaceholders.put("player", targetName);
+            Map<String, String> receiverPlaceholders = new HashMap<>();
+            receiverPlaceholders.put("amount", String.valueOf(amount));
+            receiverPlaceholders.put("currency", settings.currencyNamePlural());
+            receiverPlaceholders.put("player", sender.getName());
 
 
-        source.reply(economyManager.get(
-                "Pay-Success-Sender",senderPlaceholders,"<green>You sent <yellow>%amount% %currency% <green>to <aqua>%player%"
-        ));
+            source.reply(settings.message(
+                    "Pay-Success-Sender",senderPlaceholders,"<green>You sent <yellow>%amount% %currency% <green>to <aqua>%player%"
+            ));
 
-        player.sendMessage(economyManager.get("Pay-Success-Receiver",receiverPlaceholders,"<green>You received <yellow>%amount% %currency% <green>from <aqua>%player%"));
+            Player receiver = Bukkit.getPlayer(target);
+            if (receiver != null) {
+                receiver.sendMessage(settings.message("Pay-Success-Receiver",receiverPlaceholders,"<green>You received <yellow>%amount% %currency% <green>from <aqua>%player%"));
+            }
+        });
     }
 
 }
@@ -0,0 +1,65 @@
+package dev.m7med.economysystem.event;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Fired after an account's balance changed. Asynchronous when the change happened off the
+ * main thread, for example through the async economy service or a scheduled payout.
+ *
+ * <p>Fired once per mutation. Consumers that only need the latest value per account, such
+ * as scoreboards, should subscribe to the coalesced stream instead.
+ */
+public class BalanceChangeEvent extends Event {
+
+    public enum Cause {
+        DEPOSIT,
+        WITHDRAW,
+        SET,
+        TRANSFER,
+        PAYOUT
+    }
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final UUID account;
+    private final double oldBalance;
+    private final double newBalance;
+    private final Cause cause;
+
+    public BalanceChangeEvent(UUID account, double oldBalance, double newBalance, Cause cause, boolean async) {
+        super(async);
+        this.account = account;
+        this.oldBalance = oldBalance;
+        this.newBalance = newBalance;
+        this.cause = cause;
+    }
+
+    public UUID getAccount() {
+        return account;
+    }
+
+    public double getOldBalance() {
+        return oldBalance;
+    }
+
+    public double getNewBalance() {
+        return newBalance;
+    }
+
+    public Cause getCause() {
+        return cause;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,71 @@
+package dev.m7med.economysystem.event;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Coalesced balance updates: every change during a tick is folded into one
+ * {@link BalanceUpdate} per account (first old value, last new value) and delivered once,
+ * on the main thread, at the end of the tick. Accounts that changed and changed back are
+ * dropped. Nothing is recorded while there are no subscribers.
+ */
+public class BalanceChangeStream implements BalanceObserver {
+
+    private final Plugin plugin;
+    private final ConcurrentHashMap<UUID, BalanceUpdate> pending = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Consumer<List<BalanceUpdate>>> subscribers = new CopyOnWriteArrayList<>();
+
+    public BalanceChangeStream(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::flush, 1L, 1L);
+    }
+
+    /**
+     * Receives each tick's updates on the main thread. The list must not be kept past the call.
+     */
+    public void subscribe(Consumer<List<BalanceUpdate>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<List<BalanceUpdate>> subscriber) {
+        subscribers.remove(subscriber);
+        if (subscribers.isEmpty()) pending.clear();
+    }
+
+    @Override
+    public void onBalanceChange(UUID account, double oldBalance, double newBalance, BalanceChangeEvent.Cause cause) {
+        if (subscribers.isEmpty()) return;
+        pending.merge(account, new BalanceUpdate(account, oldBalance, newBalance),
+                (previous, next) -> new BalanceUpdate(account, previous.oldBalance(), next.newBalance()));
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) return;
+
+        List<BalanceUpdate> batch = new ArrayList<>(pending.size());
+        for (UUID account : pending.keySet()) {
+            BalanceUpdate update = pending.remove(account);
+            if (update != null && update.oldBalance() != update.newBalance()) batch.add(update);
+        }
+        if (batch.isEmpty()) return;
+
+        List<BalanceUpdate> updates = Collections.unmodifiableList(batch);
+        for (Consumer<List<BalanceUpdate>> subscriber : subscribers) {
+            try {
+                subscriber.accept(updates);
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Balance update subscriber failed: " + e);
+            }
+        }
+    }
+}
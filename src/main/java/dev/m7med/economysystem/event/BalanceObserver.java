@@ -0,0 +1,23 @@
+package dev.m7med.economysystem.event;
+
+import java.util.UUID;
+
+/**
+ * In-process hook on every balance change, registered with
+ * {@link dev.m7med.economysystem.EconomyManager#addObserver}.
+ *
+ * <p>Called after the change, one call at a time and in the order the changes happened, but
+ * never while the database lock is held. Changes that leave a balance as it was are not
+ * reported. Implementations must be cheap and must not change balances themselves.
+ */
+@FunctionalInterface
+public interface BalanceObserver {
+    void onBalanceChange(UUID account, double oldBalance, double newBalance, BalanceChangeEvent.Cause cause);
+
+    /**
+     * An account entered the index after startup, created or seen for the first time. Accounts
+     * indexed by the initial bulk load are not reported.
+     */
+    default void onAccountIndexed(UUID account, double balance) {
+    }
+}
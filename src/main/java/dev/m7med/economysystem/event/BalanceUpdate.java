@@ -0,0 +1,9 @@
+package dev.m7med.economysystem.event;
+
+import java.util.UUID;
+
+/**
+ * Net change of one account over one tick, delivered by {@link BalanceChangeStream}.
+ */
+public record BalanceUpdate(UUID account, double oldBalance, double newBalance) {
+}
@@ -0,0 +1,317 @@
+package dev.m7med.economysystem.payout;
+
+import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Money;
+import dev.m7med.economysystem.event.BalanceChangeEvent;
+import dev.m7med.economysystem.storage.Uuids;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the jobs in {@code payouts.jobs} once per period, entirely off the main thread.
+ *
+ * <p>A run has two phases. Cached accounts are computed in parallel in memory, their
+ * changes written and the run marked "online done" in one transaction, and only then
+ * applied to the cache. Stored accounts are then updated with set-based SQL in chunks
+ * of {@code payouts.chunk-size} UUIDs, each chunk committing together with the run's
+ * cursor. A crash therefore resumes where it stopped and never pays an account twice.
+ *
+ * <p>An account that joins while its chunk is still pending loads the old balance and
+ * misses that run rather than being paid twice.
+ */
+public class PayoutEngine {
+
+    private final Plugin plugin;
+    private final EconomyManager economyManager;
+    private final List<PayoutJob> jobs = new ArrayList<>();
+    private final int chunkSize;
+    private final long chunkPauseMillis;
+    private final int maxMissedPeriods;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public PayoutEngine(Plugin plugin, EconomyManager economyManager) {
+        this.plugin = plugin;
+        this.economyManager = economyManager;
+        ConfigurationSection config = plugin.getConfig().getConfigurationSection("payouts");
+        this.chunkSize = config == null ? 500 : Math.max(1, config.getInt("chunk-size", 500));
+        this.chunkPauseMillis = config == null ? 50 : Math.max(0, config.getLong("chunk-pause-ms", 50));
+        this.maxMissedPeriods = config == null ? 3 : Math.max(0, config.getInt("max-missed-periods", 3));
+
+        ConfigurationSection section = config == null || !config.getBoolean("enabled")
+                ? null : config.getConfigurationSection("jobs");
+        if (section == null) return;
+        for (String name : section.getKeys(false)) {
+            try {
+                jobs.add(PayoutJob.fromConfig(name, section.getConfigurationSection(name)));
+            } catch (RuntimeException e) {
+                plugin.getLogger().severe("Skipping payout job '" + name + "': " + e.getMessage());
+            }
+        }
+    }
+
+    public void start() {
+        if (jobs.isEmpty()) return;
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::runDueJobs, 200L, 1200L);
+    }
+
+    private void runDueJobs() {
+        if (!running.compareAndSet(false, true)) return;
+        try {
+            for (PayoutJob job : jobs) {
+                for (long period : pendingPeriods(job)) {
+                    run(job, period);
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Payout run failed, it will resume on the next check: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Unfinished runs from earlier periods first, then periods that passed while the server was
+     * down, then the current period if it has not run yet. Missed periods are caught up to
+     * {@code payouts.max-missed-periods}, most recent first; older ones are skipped. Salaries are
+     * never caught up, since they pay whoever is online now. A job without any recorded run starts
+     * at the current period.
+     */
+    private List<Long> pendingPeriods(PayoutJob job) throws SQLException {
+        long current = job.periodAt(System.currentTimeMillis());
+        return economyManager.inTransaction(connection -> {
+            List<Long> periods = new ArrayList<>();
+            long last = Long.MIN_VALUE;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT period, completed FROM payout_runs WHERE job = ? AND (completed = 0 OR period = " +
+                            "(SELECT MAX(period) FROM payout_runs WHERE job = ?)) ORDER BY period")) {
+                statement.setString(1, job.getName());
+                statement.setString(2, job.getName());
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        long period = result.getLong("period");
+                        last = Math.max(last, period);
+                        if (result.getInt("completed") == 0) periods.add(period);
+                    }
+                }
+            }
+            if (last >= current) return periods;
+
+            long first = last == Long.MIN_VALUE || !job.appliesOffline()
+                    ? current : Math.max(last + 1, current - maxMissedPeriods);
+            if (first > last + 1 && last != Long.MIN_VALUE) {
+                plugin.getLogger().warning(String.format("Payout '%s' skips %d periods missed while the server was down",
+                        job.getName(), first - last - 1));
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO payout_runs (job, period) VALUES (?, ?)")) {
+                for (long period = first; period <= current; period++) {
+                    insert.setString(1, job.getName());
+                    insert.setLong(2, period);
+                    insert.addBatch();
+                    periods.add(period);
+                }
+                insert.executeBatch();
+            }
+            return periods;
+        });
+    }
+
+    private record RunState(boolean onlineDone, byte[] cursor) {
+    }
+
+    private void run(PayoutJob job, long period) throws SQLException, InterruptedException {
+        long started = System.nanoTime();
+        RunState state = economyManager.inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT online_done, cursor FROM payout_runs WHERE job = ? AND period = ?")) {
+                statement.setString(1, job.getName());
+                statement.setLong(2, period);
+                try (ResultSet result = statement.executeQuery()) {
+                    return result.next()
+                            ? new RunState(result.getInt("online_done") != 0, result.getBytes("cursor"))
+                            : null;
+                }
+            }
+        });
+        if (state == null) return;
+
+        int cached = state.onlineDone() ? 0 : payCached(job, period);
+        int stored = job.appliesOffline() ? payStored(job, period, state.cursor()) : 0;
+
+        economyManager.inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE payout_runs SET completed = 1 WHERE job = ? AND period = ?")) {
+                statement.setString(1, job.getName());
+                statement.setLong(2, period);
+                statement.executeUpdate();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM payout_online WHERE job = ? AND period = ?")) {
+                statement.setString(1, job.getName());
+                statement.setLong(2, period);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+        plugin.getLogger().info(String.format("Payout '%s' (period %d): %d cached and %d stored accounts in %d ms",
+                job.getName(), period, cached, stored, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)));
+    }
+
+    /**
+     * Phase one: compute every cached account's change in parallel, make it durable, then apply it.
+     */
+    private int payCached(PayoutJob job, long period) throws SQLException, InterruptedException {
+        Set<UUID> eligible = job.getType() == PayoutJob.Type.SALARY ? salaryEligible(job) : null;
+        Map<UUID, Double> deltas = new ConcurrentHashMap<>();
+        economyManager.forEachCached((uuid, balance) -> {
+            if (eligible != null && !eligible.contains(uuid)) return;
+            double delta = job.apply(balance) - balance;
+            if (delta != 0) deltas.put(uuid, delta);
+        });
+
+        economyManager.inTransaction(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE players SET balance = balance + ? WHERE uuid = ?");
+                 PreparedStatement paid = connection.prepareStatement(
+                         "INSERT OR IGNORE INTO payout_online (job, period, uuid) VALUES (?, ?, ?)")) {
+                for (Map.Entry<UUID, Double> entry : deltas.entrySet()) {
+                    byte[] key = Uuids.toBytes(entry.getKey());
+                    update.setLong(1, Money.toMinor(entry.getValue()));
+                    update.setBytes(2, key);
+                    update.addBatch();
+                    paid.setString(1, job.getName());
+                    paid.setLong(2, period);
+                    paid.setBytes(3, key);
+                    paid.addBatch();
+                }
+                update.executeBatch();
+                paid.executeBatch();
+            }
+            try (PreparedStatement done = connection.prepareStatement(
+                    "UPDATE payout_runs SET online_done = 1 WHERE job = ? AND period = ?")) {
+                done.setString(1, job.getName());
+                done.setLong(2, period);
+                done.executeUpdate();
+            }
+            return null;
+        }, ignored -> deltas.forEach((uuid, delta) ->
+                economyManager.adjustCached(uuid, delta, BalanceChangeEvent.Cause.PAYOUT)));
+        return deltas.size();
+    }
+
+    /**
+     * Permission checks belong on the main thread; this is the only step of a run that goes there.
+     */
+    private Set<UUID> salaryEligible(PayoutJob job) throws InterruptedException {
+        try {
+            return plugin.getServer().getScheduler().callSyncMethod(plugin, () -> {
+                Set<UUID> eligible = new HashSet<>();
+                for (Player player : plugin.getServer().getOnlinePlayers()) {
+                    if (player.hasPermission(job.getPermission())) eligible.add(player.getUniqueId());
+                }
+                return eligible;
+            }).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            plugin.getLogger().warning("Could not collect salary recipients for '" + job.getName() + "': " + e);
+            return Set.of();
+        }
+    }
+
+    private record Chunk(byte[] upper, int updated, Map<UUID, Double> balances) {
+    }
+
+    /**
+     * Phase two: set-based updates over stored accounts in UUID order, skipping accounts paid in phase one.
+     */
+    private int payStored(PayoutJob job, long period, byte[] cursor) throws SQLException, InterruptedException {
+        int total = 0;
+        byte[] from = cursor;
+        while (true) {
+            byte[] lower = from;
+            Chunk chunk = economyManager.inTransaction(connection -> {
+                byte[] upper;
+                try (PreparedStatement bound = connection.prepareStatement(
+                        "SELECT MAX(uuid) FROM (SELECT uuid FROM players WHERE uuid > ? ORDER BY uuid LIMIT ?)")) {
+                    bound.setBytes(1, lower);
+                    bound.setInt(2, chunkSize);
+                    try (ResultSet result = bound.executeQuery()) {
+                        upper = result.next() ? result.getBytes(1) : null;
+                    }
+                }
+                if (upper == null) return null;
+
+                // Only the rows the update touched are read back, so unchanged accounts are not reindexed.
+                Map<UUID, Long> updated = new HashMap<>();
+                try (PreparedStatement update = connection.prepareStatement(
+                        "UPDATE players SET balance = " + job.balanceSql() +
+                                " WHERE uuid > ? AND uuid <= ? AND " + job.eligibleSql() +
+                                " AND uuid NOT IN (SELECT uuid FROM payout_online WHERE job = ? AND period = ?)" +
+                                " RETURNING uuid, balance")) {
+                    int index = job.bindBalance(update, 1);
+                    update.setBytes(index++, lower);
+                    update.setBytes(index++, upper);
+                    index = job.bindEligible(update, index);
+                    update.setString(index++, job.getName());
+                    update.setLong(index, period);
+                    try (ResultSet result = update.executeQuery()) {
+                        while (result.next()) {
+                            updated.put(Uuids.fromBytes(result.getBytes("uuid")), result.getLong("balance"));
+                        }
+                    }
+                }
+
+                Map<UUID, Double> balances = new HashMap<>();
+                if (!updated.isEmpty()) {
+                    try (PreparedStatement credits = connection.prepareStatement(
+                            "SELECT uuid, SUM(amount) FROM pending_credits WHERE uuid > ? AND uuid <= ? AND applied = 0 GROUP BY uuid")) {
+                        credits.setBytes(1, lower);
+                        credits.setBytes(2, upper);
+                        try (ResultSet result = credits.executeQuery()) {
+                            while (result.next()) {
+                                long pending = result.getLong(2);
+                                updated.computeIfPresent(Uuids.fromBytes(result.getBytes(1)), (uuid, balance) -> balance + pending);
+                            }
+                        }
+                    }
+                    updated.forEach((uuid, balance) -> balances.put(uuid, Money.fromMinor(balance)));
+                }
+
+                try (PreparedStatement progress = connection.prepareStatement(
+                        "UPDATE payout_runs SET cursor = ? WHERE job = ? AND period = ?")) {
+                    progress.setBytes(1, upper);
+                    progress.setString(2, job.getName());
+                    progress.setLong(3, period);
+                    progress.executeUpdate();
+                }
+                return new Chunk(upper, balances.size(), balances);
+            }, done -> {
+                if (done != null) done.balances().forEach((uuid, balance) ->
+                        economyManager.indexStoredBalance(uuid, balance, BalanceChangeEvent.Cause.PAYOUT));
+            });
+
+            if (chunk == null) return total;
+            total += chunk.updated();
+            from = chunk.upper();
+            if (chunkPauseMillis > 0) Thread.sleep(chunkPauseMillis);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package dev.m7med.economysystem.payout;
+
+import dev.m7med.economysystem.Money;
+import dev.m7med.economysystem.storage.PendingCredits;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * One scheduled payout from {@code payouts.jobs} in config.yml. The same rule is expressed
+ * twice: {@link #apply(double)} for cached accounts and a SQL expression over the stored
+ * minor-unit balances, so both sides round identically to whole cents.
+ */
+public final class PayoutJob {
+
+    public enum Type {
+        INTEREST,
+        SALARY,
+        WEALTH_TAX
+    }
+
+    private static final double NO_CAP = 1e15;
+    // What a stored account is worth: its row plus credits still waiting for the owner to join.
+    private static final String WORTH = "(balance + " + PendingCredits.UNAPPLIED_SQL + ")";
+
+    private final String name;
+    private final Type type;
+    private final long intervalMillis;
+    private final double rate;
+    private final double amount;
+    private final double cap;
+    private final double threshold;
+    private final String permission;
+
+    private PayoutJob(String name, Type type, long intervalMillis, double rate, double amount,
+                      double cap, double threshold, String permission) {
+        this.name = name;
+        this.type = type;
+        this.intervalMillis = intervalMillis;
+        this.rate = rate;
+        this.amount = amount;
+        this.cap = cap;
+        this.threshold = threshold;
+        this.permission = permission;
+    }
+
+    public static PayoutJob fromConfig(String name, ConfigurationSection section) {
+        Type type = Type.valueOf(section.getString("type", "").trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        long interval = parseInterval(section.getString("interval", "1d"));
+        double rate = section.getDouble("rate");
+        double amount = section.getDouble("amount");
+        double cap = section.getDouble("max", 0);
+        double threshold = section.getDouble("threshold");
+        String permission = section.getString("permission", "eco.salary." + name);
+
+        if (type == Type.SALARY && amount <= 0) {
+            throw new IllegalArgumentException("salary job needs a positive 'amount'");
+        }
+        if (type != Type.SALARY && (rate <= 0 || rate >= 1)) {
+            throw new IllegalArgumentException("'rate' must be between 0 and 1");
+        }
+        return new PayoutJob(name, type, interval, rate, amount, cap > 0 ? cap : NO_CAP, threshold, permission);
+    }
+
+    /**
+     * Parses {@code 30m}, {@code 12h} or {@code 1d}.
+     */
+    static long parseInterval(String raw) {
+        String value = raw.trim().toLowerCase(Locale.ROOT);
+        long unit = switch (value.charAt(value.length() - 1)) {
+            case 'm' -> 60_000L;
+            case 'h' -> 3_600_000L;
+            case 'd' -> 86_400_000L;
+            default -> throw new IllegalArgumentException("interval must end in m, h or d: " + raw);
+        };
+        long count = Long.parseLong(value.substring(0, value.length() - 1));
+        if (count <= 0) throw new IllegalArgumentException("interval must be positive: " + raw);
+        return count * unit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    /**
+     * The period a timestamp falls in. A job pays at most once per period.
+     */
+    public long periodAt(long epochMillis) {
+        return epochMillis / intervalMillis;
+    }
+
+    /**
+     * Salaries depend on permissions, which can only be checked for online players.
+     */
+    public boolean appliesOffline() {
+        return type != Type.SALARY;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    public double apply(double balance) {
+        return switch (type) {
+            case INTEREST -> balance > 0 ? balance + Math.min(round(balance * rate), cap) : balance;
+            case SALARY -> balance + amount;
+            case WEALTH_TAX -> balance > threshold ? balance - round((balance - threshold) * rate) : balance;
+        };
+    }
+
+    /**
+     * {@code SET balance = ...} expression for stored accounts, in minor units. Parameters are bound by {@link #bindBalance}.
+     * Rates apply to the row plus unapplied pending credits, as they would for the same account online;
+     * the credits themselves stay pending.
+     */
+    String balanceSql() {
+        return switch (type) {
+            case INTEREST -> "balance + MIN(CAST(ROUND(" + WORTH + " * ?) AS INTEGER), ?)";
+            case SALARY -> "balance + ?";
+            case WEALTH_TAX -> "balance - CAST(ROUND((" + WORTH + " - ?) * ?) AS INTEGER)";
+        };
+    }
+
+    /**
+     * {@code WHERE} condition selecting stored accounts the job changes, counting unapplied pending
+     * credits. Parameters are bound by {@link #bindEligible}.
+     */
+    String eligibleSql() {
+        return switch (type) {
+            case INTEREST -> WORTH + " > 0";
+            case SALARY -> "1";
+            case WEALTH_TAX -> WORTH + " > ?";
+        };
+    }
+
+    int bindBalance(PreparedStatement statement, int index) throws SQLException {
+        switch (type) {
+            case INTEREST -> {
+                statement.setDouble(index++, rate);
+                statement.setLong(index++, Money.toMinor(cap));
+            }
+            case SALARY -> statement.setLong(index++, Money.toMinor(amount));
+            case WEALTH_TAX -> {
+                statement.setLong(index++, Money.toMinor(threshold));
+                statement.setDouble(index++, rate);
+            }
+        }
+        return index;
+    }
+
+    int bindEligible(PreparedStatement statement, int index) throws SQLException {
+        if (type == Type.WEALTH_TAX) statement.setLong(index++, Money.toMinor(threshold));
+        return index;
+    }
+}
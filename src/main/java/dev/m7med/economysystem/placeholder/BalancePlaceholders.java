@@ -0,0 +1,278 @@
+package dev.m7med.economysystem.placeholder;
+
+import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Money;
+import dev.m7med.economysystem.Settings;
+import dev.m7med.economysystem.event.BalanceChangeEvent;
+import dev.m7med.economysystem.event.BalanceObserver;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Values behind the {@code %eco_...%} placeholders, kept cheap enough for scoreboards that
+ * ask for them every few ticks. Independent of PlaceholderAPI, which only gets a thin
+ * {@link EconomyExpansion} on top.
+ *
+ * <ul>
+ *   <li>{@code balance}, {@code balance_formatted}: strings are cached per online player and
+ *   reused until that player's balance changes.</li>
+ *   <li>{@code rank}: counted in {@link BalanceRanks}, which holds every registered balance.</li>
+ *   <li>{@code top_<n>_name}: taken from a small set of candidates, every account above a
+ *   floor balance.</li>
+ * </ul>
+ * Balance changes are queued as they happen and applied on each refresh, so a refresh costs
+ * time in the number of changes rather than the number of accounts, and ranks lag real
+ * balances by at most {@code placeholders.rank-refresh-ticks}. The index is only read in
+ * full when the candidates run short or when the ranks disagree with the index on the
+ * number of accounts, which happens once after the index loads at startup.
+ */
+public class BalancePlaceholders implements BalanceObserver {
+
+    private record Formatted(Settings settings, double balance, String plain, String formatted) {
+    }
+
+    /**
+     * A queued balance in minor units.
+     */
+    private record Update(UUID uuid, long newMinor) {
+    }
+
+    private final Plugin plugin;
+    private final EconomyManager economyManager;
+    private final int topSize;
+    private final int candidateSize;
+    private final ConcurrentLinkedQueue<Update> updates = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<UUID, Formatted> formatted = new ConcurrentHashMap<>();
+    // Guarded by ranks. rankedBalances holds what each account is counted with in ranks; candidates holds
+    // every account with a balance above floor, and some at or below it.
+    private final BalanceRanks ranks = new BalanceRanks();
+    private final RankedBalances rankedBalances = new RankedBalances();
+    private final HashMap<UUID, Long> candidates = new HashMap<>();
+    private long floor = Long.MAX_VALUE;
+    private boolean topChanged;
+    private boolean sizeMismatch;
+    private volatile String[] topNames = new String[0];
+
+    public BalancePlaceholders(Plugin plugin, EconomyManager economyManager) {
+        this.plugin = plugin;
+        this.economyManager = economyManager;
+        this.topSize = Math.max(1, plugin.getConfig().getInt("placeholders.top-size", 10));
+        this.candidateSize = topSize * 4;
+    }
+
+    public void start() {
+        long period = Math.max(1, plugin.getConfig().getLong("placeholders.rank-refresh-ticks", 20));
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::refresh, 1L, period);
+    }
+
+    @Override
+    public void onBalanceChange(UUID account, double oldBalance, double newBalance, BalanceChangeEvent.Cause cause) {
+        updates.add(new Update(account, Money.toMinor(newBalance)));
+    }
+
+    @Override
+    public void onAccountIndexed(UUID account, double balance) {
+        updates.add(new Update(account, Money.toMinor(balance)));
+    }
+
+    /**
+     * Resolves the text after {@code eco_}. Returns null for unknown placeholders and for
+     * player placeholders without a player.
+     */
+    public String resolve(UUID player, String params) {
+        String key = params.toLowerCase(Locale.ROOT);
+        if (key.startsWith("top_") && key.endsWith("_name")) {
+            return topName(key.substring("top_".length(), key.length() - "_name".length()));
+        }
+        if (player == null) return null;
+        return switch (key) {
+            case "balance" -> formatted(player).plain();
+            case "balance_formatted" -> formatted(player).formatted();
+            case "rank" -> String.valueOf(rank(player));
+            default -> null;
+        };
+    }
+
+    /**
+     * One plus the number of accounts with a strictly higher balance.
+     */
+    public int rank(UUID player) {
+        long balance = Money.toMinor(economyManager.getBalance(player));
+        synchronized (ranks) {
+            return (int) Math.min(Integer.MAX_VALUE - 1, ranks.countAbove(balance)) + 1;
+        }
+    }
+
+    /**
+     * Name of the account at position {@code n} (1 based), or an empty string past the end of the list.
+     */
+    public String topName(int n) {
+        String[] names = topNames;
+        return n >= 1 && n <= names.length ? names[n - 1] : "";
+    }
+
+    private String topName(String position) {
+        try {
+            return topName(Integer.parseInt(position));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Formatted formatted(UUID player) {
+        double balance = economyManager.getBalance(player);
+        Settings settings = economyManager.settings();
+        Formatted cached = formatted.get(player);
+        if (cached != null && cached.balance() == balance && cached.settings() == settings) return cached;
+
+        Formatted fresh = new Formatted(settings, balance, String.format("%.2f", balance), settings.formatAmount(balance));
+        // Only online players are cached, so the map stays as small as the player list.
+        if (economyManager.hasAccount(player)) formatted.put(player, fresh);
+        return fresh;
+    }
+
+    /**
+     * Drops strings of players who left, applies queued changes to the ranks and the top
+     * candidates, and renames the top list if it may have moved.
+     */
+    public void refresh() {
+        formatted.keySet().removeIf(uuid -> !economyManager.hasAccount(uuid));
+
+        UUID[] top;
+        synchronized (ranks) {
+            for (Update update; (update = updates.poll()) != null; ) {
+                apply(update);
+            }
+            // A mismatch can be a change still on its way; only one that survives a whole period means
+            // accounts the ranks never saw, such as the bulk load at startup.
+            boolean mismatch = ranks.total() != economyManager.getAccountIndex().size();
+            if (mismatch && sizeMismatch) {
+                rebuild();
+                mismatch = false;
+            }
+            sizeMismatch = mismatch;
+            if (candidates.size() > candidateSize * 2) trimCandidates();
+            if (ranked() < topSize && candidates.size() < ranks.total()) rescanCandidates();
+            if (!topChanged) return;
+            topChanged = false;
+            top = topCandidates();
+        }
+
+        String[] names = new String[top.length];
+        for (int i = 0; i < top.length; i++) {
+            String name = economyManager.getAccountName(top[i]);
+            names[i] = name != null ? name : top[i].toString();
+        }
+        topNames = names;
+    }
+
+    private void apply(Update update) {
+        // Replaces the balance this account was counted with, never another account's entry, so updates
+        // that were queued during a rebuild and already seen by its scan cannot skew the counts.
+        long previous = rankedBalances.put(update.uuid(), update.newMinor());
+        if (previous != RankedBalances.ABSENT) ranks.remove(previous);
+        ranks.add(update.newMinor());
+        if (update.newMinor() >= floor) {
+            candidates.put(update.uuid(), update.newMinor());
+            topChanged = true;
+        } else if (candidates.remove(update.uuid()) != null) {
+            topChanged = true;
+        }
+    }
+
+    /**
+     * Number of candidates at or above the floor. Every account missing from the candidates is at or
+     * below it, so while this reaches {@code topSize} the richest candidates are the richest accounts.
+     */
+    private int ranked() {
+        int count = 0;
+        for (long balance : candidates.values()) {
+            if (balance >= floor) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Raises the floor to the {@code candidateSize}-th highest candidate and drops everything below it.
+     */
+    private void trimCandidates() {
+        long[] balances = new long[candidates.size()];
+        int i = 0;
+        for (long balance : candidates.values()) balances[i++] = balance;
+        Arrays.sort(balances);
+        floor = Math.max(floor, balances[balances.length - candidateSize]);
+        candidates.values().removeIf(balance -> balance < floor);
+    }
+
+    /**
+     * Reads the whole index into the ranks, the ranked balances and the candidates.
+     */
+    private void rebuild() {
+        long[][] collected = {new long[Math.max(16, economyManager.getAccountIndex().size())]};
+        int[] count = new int[1];
+        rankedBalances.clear(collected[0].length);
+        economyManager.getAccountIndex().forEach((mostSigBits, leastSigBits, balanceMinor) -> {
+            if (count[0] == collected[0].length) collected[0] = Arrays.copyOf(collected[0], count[0] * 2);
+            collected[0][count[0]++] = balanceMinor;
+            rankedBalances.put(mostSigBits, leastSigBits, balanceMinor);
+        });
+        Arrays.sort(collected[0], 0, count[0]);
+        ranks.rebuild(collected[0], count[0]);
+        rescanCandidates();
+    }
+
+    /**
+     * Selects the {@code candidateSize} highest balances from the index and puts the floor at the
+     * lowest of them. Accounts tied with it may not have fit, which is fine: any of them ranks the same.
+     */
+    private void rescanCandidates() {
+        long[] topBalances = new long[candidateSize];
+        long[] topMost = new long[candidateSize];
+        long[] topLeast = new long[candidateSize];
+        int[] topCount = new int[1];
+        int[] seen = new int[1];
+        economyManager.getAccountIndex().forEach((mostSigBits, leastSigBits, balanceMinor) -> {
+            seen[0]++;
+            int position = topCount[0];
+            while (position > 0 && topBalances[position - 1] < balanceMinor) position--;
+            if (position == candidateSize) return;
+            int moved = Math.min(topCount[0], candidateSize - 1) - position;
+            System.arraycopy(topBalances, position, topBalances, position + 1, moved);
+            System.arraycopy(topMost, position, topMost, position + 1, moved);
+            System.arraycopy(topLeast, position, topLeast, position + 1, moved);
+            topBalances[position] = balanceMinor;
+            topMost[position] = mostSigBits;
+            topLeast[position] = leastSigBits;
+            if (topCount[0] < candidateSize) topCount[0]++;
+        });
+
+        candidates.clear();
+        for (int i = 0; i < topCount[0]; i++) {
+            candidates.put(new UUID(topMost[i], topLeast[i]), topBalances[i]);
+        }
+        floor = seen[0] <= candidateSize ? Long.MIN_VALUE : topBalances[candidateSize - 1];
+        topChanged = true;
+    }
+
+    /**
+     * The richest candidates in order, ties broken by UUID so the list does not flicker.
+     */
+    private UUID[] topCandidates() {
+        List<Map.Entry<UUID, Long>> entries = new ArrayList<>(candidates.entrySet());
+        entries.sort(Map.Entry.<UUID, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        UUID[] top = new UUID[Math.min(topSize, entries.size())];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = entries.get(i).getKey();
+        }
+        return top;
+    }
+}
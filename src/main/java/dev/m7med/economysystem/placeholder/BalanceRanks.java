@@ -0,0 +1,192 @@
+package dev.m7med.economysystem.placeholder;
+
+import java.util.Arrays;
+
+/**
+ * Counts of balances (minor units) that answer "how many accounts have more than x" and take
+ * single updates without a rebuild.
+ *
+ * <p>Balances fall into log-scaled buckets: exact below 256, then 128 buckets per power of
+ * two, so about 7,300 in total. A Fenwick tree over bucket totals counts every higher bucket
+ * in O(log buckets). Within its own bucket a balance is binary searched in a sorted array of
+ * distinct values with counts, which keeps large runs of equal balances (everyone still on
+ * the default) down to one entry, and a second Fenwick tree per bucket sums the counts past
+ * that position. An update costs one binary search and one tree update, or, when a distinct
+ * value appears or disappears, a shift and a linear rebuild of that bucket's tree.
+ *
+ * <p>Not thread-safe; {@link BalancePlaceholders} guards it.
+ */
+final class BalanceRanks {
+
+    private static final int EXACT = 256;
+    private static final int SUB_BUCKETS = 128;
+    static final int BUCKETS = EXACT + (62 - 8 + 1) * SUB_BUCKETS;
+
+    private final long[][] values = new long[BUCKETS][];
+    private final int[][] counts = new int[BUCKETS][];
+    // Fenwick trees over counts, one per bucket, covering the first sizes[bucket] entries.
+    private final int[][] sums = new int[BUCKETS][];
+    private final int[] sizes = new int[BUCKETS];
+    private final long[] tree = new long[BUCKETS + 1];
+    private long total;
+
+    /**
+     * Monotonic bucket of a balance. Zero and negative balances share bucket 0.
+     */
+    static int bucket(long value) {
+        if (value <= 0) return 0;
+        if (value < EXACT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 7));
+        return EXACT + (exponent - 8) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    long total() {
+        return total;
+    }
+
+    /**
+     * Number of balances strictly greater than {@code value}.
+     */
+    long countAbove(long value) {
+        int bucket = bucket(value);
+        long above = total - prefix(bucket);
+        int size = sizes[bucket];
+        if (size == 0) return above;
+        int index = Arrays.binarySearch(values[bucket], 0, size, value);
+        int firstAbove = index >= 0 ? index + 1 : -index - 1;
+        return above + sum(sums[bucket], size) - sum(sums[bucket], firstAbove);
+    }
+
+    void add(long value) {
+        int bucket = bucket(value);
+        int size = sizes[bucket];
+        long[] bucketValues = values[bucket];
+        int index = size == 0 ? -1 : Arrays.binarySearch(bucketValues, 0, size, value);
+        if (index >= 0) {
+            counts[bucket][index]++;
+            add(sums[bucket], size, index, 1);
+        } else {
+            int at = -index - 1;
+            if (bucketValues == null || size == bucketValues.length) {
+                int capacity = Math.max(4, size * 2);
+                values[bucket] = bucketValues = bucketValues == null ? new long[capacity] : Arrays.copyOf(bucketValues, capacity);
+                counts[bucket] = counts[bucket] == null ? new int[capacity] : Arrays.copyOf(counts[bucket], capacity);
+                sums[bucket] = new int[capacity + 1];
+            }
+            System.arraycopy(bucketValues, at, bucketValues, at + 1, size - at);
+            System.arraycopy(counts[bucket], at, counts[bucket], at + 1, size - at);
+            bucketValues[at] = value;
+            counts[bucket][at] = 1;
+            sizes[bucket] = size + 1;
+            build(counts[bucket], size + 1, sums[bucket]);
+        }
+        update(bucket, 1);
+        total++;
+    }
+
+    /**
+     * Removes one occurrence of {@code value}. Returns false if there is none.
+     */
+    boolean remove(long value) {
+        int bucket = bucket(value);
+        int size = sizes[bucket];
+        if (size == 0) return false;
+        int index = Arrays.binarySearch(values[bucket], 0, size, value);
+        if (index < 0) return false;
+        if (--counts[bucket][index] == 0) {
+            System.arraycopy(values[bucket], index + 1, values[bucket], index, size - index - 1);
+            System.arraycopy(counts[bucket], index + 1, counts[bucket], index, size - index - 1);
+            sizes[bucket] = size - 1;
+            build(counts[bucket], size - 1, sums[bucket]);
+        } else {
+            add(sums[bucket], size, index, -1);
+        }
+        update(bucket, -1);
+        total--;
+        return true;
+    }
+
+    /**
+     * Replaces everything with {@code sorted}, ascending.
+     */
+    void rebuild(long[] sorted, int length) {
+        Arrays.fill(values, null);
+        Arrays.fill(counts, null);
+        Arrays.fill(sums, null);
+        Arrays.fill(sizes, 0);
+        Arrays.fill(tree, 0);
+        total = 0;
+        int start = 0;
+        while (start < length) {
+            int bucket = bucket(sorted[start]);
+            int end = start;
+            int distinct = 0;
+            while (end < length && bucket(sorted[end]) == bucket) {
+                if (end == start || sorted[end] != sorted[end - 1]) distinct++;
+                end++;
+            }
+            long[] bucketValues = new long[distinct];
+            int[] bucketCounts = new int[distinct];
+            int index = -1;
+            for (int i = start; i < end; i++) {
+                if (i == start || sorted[i] != sorted[i - 1]) bucketValues[++index] = sorted[i];
+                bucketCounts[index]++;
+            }
+            values[bucket] = bucketValues;
+            counts[bucket] = bucketCounts;
+            sums[bucket] = new int[distinct + 1];
+            build(bucketCounts, distinct, sums[bucket]);
+            sizes[bucket] = distinct;
+            update(bucket, end - start);
+            total += end - start;
+            start = end;
+        }
+    }
+
+    /**
+     * Fills {@code tree} as the Fenwick tree of the first {@code size} counts, in linear time.
+     */
+    private static void build(int[] counts, int size, int[] tree) {
+        Arrays.fill(tree, 0, size + 1, 0);
+        for (int i = 1; i <= size; i++) {
+            tree[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= size) tree[parent] += tree[i];
+        }
+    }
+
+    private static void add(int[] tree, int size, int index, int delta) {
+        for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sum of the first {@code length} counts.
+     */
+    private static long sum(int[] tree, int length) {
+        long sum = 0;
+        for (int i = length; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void update(int bucket, long delta) {
+        for (int i = bucket + 1; i <= BUCKETS; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sum of buckets {@code 0..bucket}, inclusive.
+     */
+    private long prefix(int bucket) {
+        long sum = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,47 @@
+package dev.m7med.economysystem.placeholder;
+
+import me.clip.placeholderapi.expansion.PlaceholderExpansion;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Registers {@link BalancePlaceholders} with PlaceholderAPI as {@code %eco_...%}.
+ * Only loaded when PlaceholderAPI is installed.
+ */
+public class EconomyExpansion extends PlaceholderExpansion {
+
+    private final Plugin plugin;
+    private final BalancePlaceholders placeholders;
+
+    public EconomyExpansion(Plugin plugin, BalancePlaceholders placeholders) {
+        this.plugin = plugin;
+        this.placeholders = placeholders;
+    }
+
+    @Override
+    public @NotNull String getIdentifier() {
+        return "eco";
+    }
+
+    @Override
+    public @NotNull String getAuthor() {
+        return String.join(", ", plugin.getPluginMeta().getAuthors());
+    }
+
+    @Override
+    public @NotNull String getVersion() {
+        return plugin.getPluginMeta().getVersion();
+    }
+
+    @Override
+    public boolean persist() {
+        return true;
+    }
+
+    @Override
+    public @Nullable String onRequest(OfflinePlayer player, @NotNull String params) {
+        return placeholders.resolve(player == null ? null : player.getUniqueId(), params);
+    }
+}
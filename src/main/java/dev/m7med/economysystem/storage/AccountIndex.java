@@ -0,0 +1,454 @@
+package dev.m7med.economysystem.storage;
+
+import dev.m7med.economysystem.Money;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Off-heap index of every registered account.
+ *
+ * <p>Each account is a 40 byte slot in an open-addressed table:
+ * <pre>
+ *   0  long  UUID most significant bits
+ *   8  long  UUID least significant bits
+ *  16  long  balance in minor units
+ *  24  int   name offset into the name arena
+ *  28  int   name length in bytes (-1 when unknown)
+ *  32  long  last seen, epoch millis (0 if never)
+ * </pre>
+ * Names live as UTF-8 in a shared arena and are found through a second open-addressed
+ * table of slot numbers keyed by the case-insensitive name hash. Nothing per account is
+ * allocated on the heap, so a million accounts cost roughly 104 MB of direct memory (2^21
+ * slots of 40 bytes, a 4 byte name table entry per slot and about 12 bytes of name each)
+ * and no GC pressure, against several hundred MB for {@code HashMap<UUID, ...>} layouts.
+ *
+ * <p>Buffers are indexed by int, so the table stops at {@link #MAX_CAPACITY} slots, about 23
+ * million accounts at the load factor; beyond that inserts fail. Keeping below it also keeps
+ * every {@code slot * SLOT_BYTES} offset within int range.
+ *
+ * <p>A name belongs to one account at a time. When two accounts claim it (someone took
+ * over a name after a rename), the one seen most recently keeps it, ties going to the
+ * higher UUID, and the other account's name is dropped. The outcome therefore does not
+ * depend on insertion order, so a restart or a resize never moves a name.
+ *
+ * <p>Writes take the write lock. Existence and balance reads are optimistic and only fall
+ * back to the read lock when they race a write.
+ */
+public final class AccountIndex {
+
+    private static final int SLOT_BYTES = 40;
+    private static final int MSB = 0;
+    private static final int LSB = 8;
+    private static final int BALANCE = 16;
+    private static final int NAME_OFFSET = 24;
+    private static final int NAME_LENGTH = 28;
+    private static final int LAST_SEEN = 32;
+    private static final int NO_NAME = -1;
+    private static final double MAX_LOAD = 0.7;
+    // The largest power of two whose slot table still fits a ByteBuffer: 2^25 * 40 bytes is 1.3 GB.
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    /**
+     * Receives accounts from {@link #forEach(Visitor)}.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long mostSigBits, long leastSigBits, long balanceMinor);
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private ByteBuffer slots;
+    private IntBuffer nameTable;
+    private ByteBuffer names;
+    private int capacity;
+    private int size;
+    private int namesUsed;
+    private int namesGarbage;
+
+    public AccountIndex(int expectedAccounts) {
+        this.capacity = tableSizeFor(expectedAccounts);
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+        this.nameTable = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        this.names = ByteBuffer.allocateDirect(Math.max(1024, Math.min(expectedAccounts, MAX_CAPACITY) * 12));
+    }
+
+    private static int tableSizeFor(int expected) {
+        int needed = (int) Math.min(MAX_CAPACITY, (long) Math.ceil(Math.max(16, expected) / MAX_LOAD));
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Inserts or updates an account. A {@code null} name keeps the stored name; a name marks
+     * the account as seen now, since names only come from players who are online.
+     */
+    public void put(UUID uuid, String name, double balance) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotForWrite(uuid);
+            slots.putLong(slot * SLOT_BYTES + BALANCE, Money.toMinor(balance));
+            if (name != null) {
+                slots.putLong(slot * SLOT_BYTES + LAST_SEEN, System.currentTimeMillis());
+                setName(slot, name);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Inserts an account only if it is not indexed yet, returning whether it was inserted. Used
+     * when bulk loading from the database so a stale row never overwrites a balance that changed
+     * in the meantime.
+     */
+    public boolean putIfAbsent(UUID uuid, String name, double balance, long lastSeen) {
+        long stamp = lock.writeLock();
+        try {
+            if (find(slots, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) >= 0) return false;
+            int slot = slotForWrite(uuid);
+            slots.putLong(slot * SLOT_BYTES + BALANCE, Money.toMinor(balance));
+            slots.putLong(slot * SLOT_BYTES + LAST_SEEN, lastSeen);
+            if (name != null) setName(slot, name);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean contains(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        boolean found = find(slots, msb, lsb) >= 0;
+        if (lock.validate(stamp)) return found;
+
+        stamp = lock.readLock();
+        try {
+            return find(slots, msb, lsb) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the indexed balance, or {@code absent} if the account is unknown.
+     */
+    public double getBalance(UUID uuid, double absent) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        ByteBuffer table = slots;
+        int slot = find(table, msb, lsb);
+        long minor = slot >= 0 ? table.getLong(slot * SLOT_BYTES + BALANCE) : 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                slot = find(slots, msb, lsb);
+                minor = slot >= 0 ? slots.getLong(slot * SLOT_BYTES + BALANCE) : 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return slot >= 0 ? Money.fromMinor(minor) : absent;
+    }
+
+    public String getName(UUID uuid) {
+        long stamp = lock.readLock();
+        try {
+            int slot = find(slots, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            return slot >= 0 ? readName(slot) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Case-insensitive lookup of the account currently holding {@code name}.
+     */
+    public UUID findByName(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        long stamp = lock.readLock();
+        try {
+            int mask = capacity - 1;
+            for (int i = nameHash(key) & mask, probes = 0; probes < capacity; i = (i + 1) & mask, probes++) {
+                int entry = nameTable.get(i);
+                if (entry == 0) return null;
+                int slot = entry - 1;
+                if (nameEquals(slot, key)) {
+                    int base = slot * SLOT_BYTES;
+                    return new UUID(slots.getLong(base + MSB), slots.getLong(base + LSB));
+                }
+            }
+            return null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long offHeapBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) slots.capacity() + names.capacity() + (long) nameTable.capacity() * Integer.BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Visits every account under the read lock. Visitors must not call back into the index.
+     */
+    public void forEach(Visitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                int base = slot * SLOT_BYTES;
+                long msb = slots.getLong(base + MSB);
+                long lsb = slots.getLong(base + LSB);
+                if (msb == 0 && lsb == 0) continue;
+                visitor.visit(msb, lsb, slots.getLong(base + BALANCE));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the slot holding the key, or -1. Derives the mask from the buffer it was given
+     * so an optimistic reader racing a resize stays in bounds; the caller validates the result.
+     */
+    private static int find(ByteBuffer table, long msb, long lsb) {
+        int slotCount = table.capacity() / SLOT_BYTES;
+        int mask = slotCount - 1;
+        for (int i = hash(msb, lsb) & mask, probes = 0; probes < slotCount; i = (i + 1) & mask, probes++) {
+            int base = i * SLOT_BYTES;
+            long m = table.getLong(base + MSB);
+            long l = table.getLong(base + LSB);
+            if (m == msb && l == lsb) return i;
+            if (m == 0 && l == 0) return -1;
+        }
+        return -1;
+    }
+
+    private int slotForWrite(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int existing = find(slots, msb, lsb);
+        if (existing >= 0) return existing;
+
+        if (size + 1 > capacity * MAX_LOAD) {
+            if (capacity >= MAX_CAPACITY) throw new IllegalStateException("Account index is full at " + size + " accounts");
+            resize(capacity << 1);
+        }
+        int mask = capacity - 1;
+        int i = hash(msb, lsb) & mask;
+        while (slots.getLong(i * SLOT_BYTES + MSB) != 0 || slots.getLong(i * SLOT_BYTES + LSB) != 0) {
+            i = (i + 1) & mask;
+        }
+        int base = i * SLOT_BYTES;
+        slots.putInt(base + NAME_LENGTH, NO_NAME);
+        slots.putLong(base + BALANCE, 0);
+        slots.putLong(base + LAST_SEEN, 0);
+        slots.putLong(base + LSB, lsb);
+        slots.putLong(base + MSB, msb);
+        size++;
+        return i;
+    }
+
+    private void resize(int newCapacity) {
+        ByteBuffer oldSlots = slots;
+        int oldCapacity = capacity;
+        ByteBuffer newSlots = ByteBuffer.allocateDirect(newCapacity * SLOT_BYTES);
+        int mask = newCapacity - 1;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int base = slot * SLOT_BYTES;
+            long msb = oldSlots.getLong(base + MSB);
+            long lsb = oldSlots.getLong(base + LSB);
+            if (msb == 0 && lsb == 0) continue;
+            int i = hash(msb, lsb) & mask;
+            while (newSlots.getLong(i * SLOT_BYTES + MSB) != 0 || newSlots.getLong(i * SLOT_BYTES + LSB) != 0) {
+                i = (i + 1) & mask;
+            }
+            newSlots.put(i * SLOT_BYTES, oldSlots, base, SLOT_BYTES);
+        }
+        slots = newSlots;
+        capacity = newCapacity;
+        nameTable = ByteBuffer.allocateDirect(newCapacity * Integer.BYTES).asIntBuffer();
+        for (int slot = 0; slot < newCapacity; slot++) {
+            if (slots.getInt(slot * SLOT_BYTES + NAME_LENGTH) != NO_NAME) insertName(slot);
+        }
+    }
+
+    private void setName(int slot, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int base = slot * SLOT_BYTES;
+        int oldLength = slots.getInt(base + NAME_LENGTH);
+        if (oldLength != NO_NAME) {
+            if (oldLength == bytes.length && slice(slot, oldLength).equals(ByteBuffer.wrap(bytes))) return;
+            removeName(slot);
+            namesGarbage += oldLength;
+        }
+
+        ensureNameSpace(bytes.length);
+        names.put(namesUsed, bytes);
+        slots.putInt(base + NAME_OFFSET, namesUsed);
+        slots.putInt(base + NAME_LENGTH, bytes.length);
+        namesUsed += bytes.length;
+        insertName(slot);
+    }
+
+    private ByteBuffer slice(int slot, int length) {
+        return names.slice(slots.getInt(slot * SLOT_BYTES + NAME_OFFSET), length);
+    }
+
+    private void ensureNameSpace(int bytes) {
+        if (namesUsed + bytes <= names.capacity()) return;
+
+        // Renames leave dead bytes behind; rewrite the arena when that is enough to fit.
+        boolean compact = namesGarbage >= bytes && namesGarbage > namesUsed / 2;
+        int newCapacity = compact ? names.capacity() : Math.max(names.capacity() << 1, namesUsed + bytes);
+        ByteBuffer newNames = ByteBuffer.allocateDirect(newCapacity);
+        int used = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = slot * SLOT_BYTES;
+            int length = slots.getInt(base + NAME_LENGTH);
+            if (length == NO_NAME) continue;
+            newNames.put(used, names, slots.getInt(base + NAME_OFFSET), length);
+            slots.putInt(base + NAME_OFFSET, used);
+            used += length;
+        }
+        names = newNames;
+        namesUsed = used;
+        namesGarbage = 0;
+        if (namesUsed + bytes > names.capacity()) ensureNameSpace(bytes);
+    }
+
+    private String readName(int slot) {
+        int base = slot * SLOT_BYTES;
+        int length = slots.getInt(base + NAME_LENGTH);
+        if (length == NO_NAME) return null;
+        byte[] bytes = new byte[length];
+        names.get(slots.getInt(base + NAME_OFFSET), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int lower(int b) {
+        return b >= 'A' && b <= 'Z' ? b + 32 : b;
+    }
+
+    private static int nameHash(byte[] name) {
+        int h = 0x811C9DC5;
+        for (byte b : name) {
+            h = (h ^ lower(b & 0xFF)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private int nameHash(int slot) {
+        int base = slot * SLOT_BYTES;
+        int offset = slots.getInt(base + NAME_OFFSET);
+        int length = slots.getInt(base + NAME_LENGTH);
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ lower(names.get(offset + i) & 0xFF)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean nameEquals(int slot, byte[] key) {
+        int base = slot * SLOT_BYTES;
+        int length = slots.getInt(base + NAME_LENGTH);
+        if (length != key.length) return false;
+        int offset = slots.getInt(base + NAME_OFFSET);
+        for (int i = 0; i < length; i++) {
+            if (lower(names.get(offset + i) & 0xFF) != lower(key[i] & 0xFF)) return false;
+        }
+        return true;
+    }
+
+    private void insertName(int slot) {
+        int mask = capacity - 1;
+        int i = nameHash(slot) & mask;
+        byte[] key = null;
+        while (true) {
+            int entry = nameTable.get(i);
+            if (entry == 0) break;
+            if (key == null) {
+                key = new byte[slots.getInt(slot * SLOT_BYTES + NAME_LENGTH)];
+                names.get(slots.getInt(slot * SLOT_BYTES + NAME_OFFSET), key);
+            }
+            if (nameEquals(entry - 1, key)) {
+                int holder = entry - 1;
+                if (holder == slot) return;
+                if (outranks(holder, slot)) {
+                    dropName(slot);
+                    return;
+                }
+                dropName(holder);
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        nameTable.put(i, slot + 1);
+    }
+
+    /**
+     * Whether {@code a} keeps a name both accounts claim: seen more recently, then the higher UUID.
+     */
+    private boolean outranks(int a, int b) {
+        int compare = Long.compare(slots.getLong(a * SLOT_BYTES + LAST_SEEN), slots.getLong(b * SLOT_BYTES + LAST_SEEN));
+        if (compare == 0) compare = Long.compare(slots.getLong(a * SLOT_BYTES + MSB), slots.getLong(b * SLOT_BYTES + MSB));
+        if (compare == 0) compare = Long.compare(slots.getLong(a * SLOT_BYTES + LSB), slots.getLong(b * SLOT_BYTES + LSB));
+        return compare > 0;
+    }
+
+    /**
+     * Forgets a slot's name without touching the name table; the caller takes care of its entry.
+     */
+    private void dropName(int slot) {
+        int base = slot * SLOT_BYTES;
+        namesGarbage += slots.getInt(base + NAME_LENGTH);
+        slots.putInt(base + NAME_LENGTH, NO_NAME);
+    }
+
+    private void removeName(int slot) {
+        int mask = capacity - 1;
+        int i = nameHash(slot) & mask;
+        while (true) {
+            int entry = nameTable.get(i);
+            if (entry == 0) return;
+            if (entry == slot + 1) break;
+            i = (i + 1) & mask;
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones.
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            int entry = nameTable.get(j);
+            if (entry == 0) break;
+            int home = nameHash(entry - 1) & mask;
+            boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (between) continue;
+            nameTable.put(i, entry);
+            i = j;
+        }
+        nameTable.put(i, 0);
+    }
+}
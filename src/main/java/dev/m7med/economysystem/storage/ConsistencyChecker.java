@@ -0,0 +1,313 @@
+package dev.m7med.economysystem.storage;
+
+import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Money;
+import dev.m7med.economysystem.event.BalanceChangeEvent;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+import org.sqlite.Function;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background audit that the {@code players} table agrees with the balances held in memory
+ * (the cache for online accounts, the {@link AccountIndex} for everyone else). A stored
+ * balance is the row plus its unapplied {@link PendingCredits}.
+ *
+ * <p>The UUID space is cut into 65,536 leaves by the first two key bytes, grouped under 256
+ * ranges by the first byte. Each leaf has a digest: its account count and the sum of a
+ * 31-bit hash of every (uuid, balance) pair. A pass takes the in-memory digests in one scan
+ * of the index, then walks the 256 ranges one at a time with a pause in between, letting
+ * SQLite compute the leaf digests of a range in a single grouped range scan over the
+ * primary key. A range whose total matches is done; otherwise only the rows of its
+ * mismatched leaves are read back and compared account by account under the database lock.
+ *
+ * <p>Findings, each optionally repaired with {@code audit.repair}:
+ * <ul>
+ *   <li>offline balance differs: the database is authoritative, the index is corrected</li>
+ *   <li>row missing: an indexed offline account has no row, one is written from the index</li>
+ *   <li>row not indexed: the row is added to the index</li>
+ *   <li>cached balance unsaved: an online account still holds the balance saved at the start of the
+ *   pass but its row differs, the row is rewritten</li>
+ * </ul>
+ * A pass takes close to a minute, so online accounts whose balance changed since that save are
+ * skipped: their row is legitimately behind and the next auto-save catches up.
+ */
+public class ConsistencyChecker {
+
+    public record Report(int accounts, int mismatchedLeaves, int balanceMismatches, int missingRows,
+                         int unindexedRows, int unsavedCached, boolean repaired, long millis) {
+
+        public int discrepancies() {
+            return balanceMismatches + missingRows + unindexedRows + unsavedCached;
+        }
+    }
+
+    private static final int RANGES = 256;
+    private static final int LEAVES = RANGES * 256;
+
+    private final Plugin plugin;
+    private final EconomyManager economyManager;
+    private final boolean enabled;
+    private final long intervalTicks;
+    private final long pauseMillis;
+    private final boolean repair;
+    private CompletableFuture<Report> running;
+
+    public ConsistencyChecker(Plugin plugin, EconomyManager economyManager) {
+        this.plugin = plugin;
+        this.economyManager = economyManager;
+        ConfigurationSection config = plugin.getConfig().getConfigurationSection("audit");
+        if (config == null) config = plugin.getConfig().createSection("audit");
+        this.enabled = config.getBoolean("enabled", true);
+        this.intervalTicks = Math.max(1, config.getLong("interval-minutes", 360)) * 60 * 20;
+        this.pauseMillis = Math.max(0, config.getLong("step-pause-ms", 200));
+        this.repair = config.getBoolean("repair", false);
+    }
+
+    public void start() {
+        try {
+            economyManager.inTransaction(connection -> {
+                Function.create(connection, "eco_mix", new Function() {
+                    @Override
+                    protected void xFunc() throws SQLException {
+                        ByteBuffer key = ByteBuffer.wrap(value_blob(0));
+                        result(mix(key.getLong(), key.getLong(), value_long(1)));
+                    }
+                });
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to register the audit hash function, audits disabled: " + e.getMessage());
+            return;
+        }
+        if (enabled) {
+            plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::audit, intervalTicks, intervalTicks);
+        }
+    }
+
+    /**
+     * Starts a pass unless one is already running, and returns the running pass.
+     */
+    public synchronized CompletableFuture<Report> audit() {
+        if (running != null && !running.isDone()) return running;
+        CompletableFuture<Report> pass = new CompletableFuture<>();
+        running = pass;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                Report report = runPass();
+                log(report);
+                pass.complete(report);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                plugin.getLogger().severe("Consistency audit failed: " + e.getMessage());
+                pass.completeExceptionally(e);
+            }
+        });
+        return pass;
+    }
+
+    /**
+     * 31-bit hash of one account, so a leaf's sum cannot overflow SQLite's 64-bit SUM.
+     */
+    static long mix(long mostSigBits, long leastSigBits, long balanceMinor) {
+        long hash = mostSigBits * 0x9E3779B97F4A7C15L ^ leastSigBits;
+        hash = (hash ^ (hash >>> 31)) * 0xBF58476D1CE4E5B9L + balanceMinor;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return (hash ^ (hash >>> 31)) & 0x7FFFFFFFL;
+    }
+
+    private static final class Findings {
+        final Map<UUID, Double> saved;
+        int mismatchedLeaves;
+        final List<UUID> balanceMismatches = new ArrayList<>();
+        final List<UUID> missingRows = new ArrayList<>();
+        final List<UUID> unindexedRows = new ArrayList<>();
+        final List<UUID> unsavedCached = new ArrayList<>();
+
+        Findings(Map<UUID, Double> saved) {
+            this.saved = saved;
+        }
+    }
+
+    private Report runPass() throws SQLException, InterruptedException {
+        long started = System.nanoTime();
+        // Online balances are ahead of the table by design; save them so only real drift remains,
+        // and remember what was saved to tell drift from changes made during the pass.
+        Map<UUID, Double> saved = economyManager.saveCached();
+
+        int[] counts = new int[LEAVES];
+        long[] sums = new long[LEAVES];
+        int[] accounts = new int[1];
+        economyManager.getAccountIndex().forEach((mostSigBits, leastSigBits, balanceMinor) -> {
+            int leaf = (int) (mostSigBits >>> 48);
+            counts[leaf]++;
+            sums[leaf] += mix(mostSigBits, leastSigBits, balanceMinor);
+            accounts[0]++;
+        });
+
+        Findings findings = new Findings(saved);
+        for (int range = 0; range < RANGES; range++) {
+            checkRange(range, counts, sums, findings);
+            if (pauseMillis > 0) Thread.sleep(pauseMillis);
+        }
+        return new Report(accounts[0], findings.mismatchedLeaves, findings.balanceMismatches.size(),
+                findings.missingRows.size(), findings.unindexedRows.size(), findings.unsavedCached.size(),
+                repair, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void checkRange(int range, int[] counts, long[] sums, Findings findings) throws SQLException {
+        long[] storedCounts = new long[256];
+        long[] storedSums = new long[256];
+        economyManager.inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT substr(uuid, 1, 2) AS leaf, COUNT(*), SUM(eco_mix(uuid, balance + " + PendingCredits.UNAPPLIED_SQL + ")) FROM players " +
+                            "WHERE uuid >= ?" + (range + 1 < RANGES ? " AND uuid < ?" : "") + " GROUP BY leaf")) {
+                statement.setBytes(1, new byte[]{(byte) range});
+                if (range + 1 < RANGES) statement.setBytes(2, new byte[]{(byte) (range + 1)});
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        int leaf = result.getBytes(1)[1] & 0xFF;
+                        storedCounts[leaf] = result.getLong(2);
+                        storedSums[leaf] = result.getLong(3);
+                    }
+                }
+            }
+            return null;
+        });
+
+        long memoryCount = 0, memorySum = 0, storedCount = 0, storedSum = 0;
+        for (int i = 0; i < 256; i++) {
+            memoryCount += counts[range * 256 + i];
+            memorySum += sums[range * 256 + i];
+            storedCount += storedCounts[i];
+            storedSum += storedSums[i];
+        }
+        if (memoryCount == storedCount && memorySum == storedSum) return;
+
+        List<Integer> leaves = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            int leaf = range * 256 + i;
+            if (counts[leaf] != storedCounts[i] || sums[leaf] != storedSums[i]) leaves.add(leaf);
+        }
+        findings.mismatchedLeaves += leaves.size();
+        recheck(leaves, findings);
+    }
+
+    private record Stored(UUID uuid, String name, double balance) {
+    }
+
+    /**
+     * Re-reads the rows of mismatched leaves and compares them with memory as it is now. Holding
+     * the database lock keeps offline accounts still: every stored write also happens under it.
+     */
+    private void recheck(List<Integer> leaves, Findings findings) throws SQLException {
+        List<Stored> reindex = new ArrayList<>();
+        List<Stored> unindexed = new ArrayList<>();
+        economyManager.inTransaction(connection -> {
+            Set<UUID> stored = new HashSet<>();
+            Set<Integer> leafSet = new HashSet<>(leaves);
+            String columns = "SELECT uuid, balance + " + PendingCredits.UNAPPLIED_SQL + " AS balance, username FROM players ";
+            try (PreparedStatement read = connection.prepareStatement(columns + "WHERE uuid >= ? AND uuid < ?");
+                 PreparedStatement readLast = connection.prepareStatement(columns + "WHERE uuid >= ?")) {
+                for (int leaf : leaves) {
+                    PreparedStatement statement = leaf + 1 < LEAVES ? read : readLast;
+                    statement.setBytes(1, leafKey(leaf));
+                    if (leaf + 1 < LEAVES) statement.setBytes(2, leafKey(leaf + 1));
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            UUID uuid = Uuids.fromBytes(result.getBytes("uuid"));
+                            long balance = result.getLong("balance");
+                            stored.add(uuid);
+                            compare(connection, new Stored(uuid, result.getString("username"), Money.fromMinor(balance)),
+                                    findings, reindex, unindexed);
+                        }
+                    }
+                }
+            }
+
+            // Indexed offline accounts in these leaves that have no row at all.
+            List<UUID> indexed = new ArrayList<>();
+            economyManager.getAccountIndex().forEach((mostSigBits, leastSigBits, balanceMinor) -> {
+                if (leafSet.contains((int) (mostSigBits >>> 48))) indexed.add(new UUID(mostSigBits, leastSigBits));
+            });
+            for (UUID uuid : indexed) {
+                if (stored.contains(uuid) || economyManager.hasAccount(uuid)) continue;
+                findings.missingRows.add(uuid);
+                if (repair) writeMissingRow(connection, uuid);
+            }
+            return null;
+        }, ignored -> {
+            for (Stored account : reindex) {
+                economyManager.indexStoredBalance(account.uuid(), account.balance(), BalanceChangeEvent.Cause.SET);
+            }
+            for (Stored account : unindexed) {
+                economyManager.indexStoredAccount(account.uuid(), account.name(), account.balance());
+            }
+        });
+    }
+
+    private void compare(Connection connection, Stored row, Findings findings,
+                         List<Stored> reindex, List<Stored> unindexed) throws SQLException {
+        UUID uuid = row.uuid();
+        long stored = Money.toMinor(row.balance());
+        if (economyManager.hasAccount(uuid)) {
+            double cached = economyManager.getBalance(uuid);
+            Double saved = findings.saved.get(uuid);
+            // Loaded or changed since the pass began: the row is not expected to match yet.
+            if (saved == null || Money.toMinor(saved) != Money.toMinor(cached)) return;
+            if (Money.toMinor(cached) == stored) return;
+            findings.unsavedCached.add(uuid);
+            if (repair) {
+                try (PreparedStatement update = connection.prepareStatement("UPDATE players SET balance = ? WHERE uuid = ?")) {
+                    update.setLong(1, Money.toMinor(cached));
+                    update.setBytes(2, Uuids.toBytes(uuid));
+                    update.executeUpdate();
+                }
+            }
+        } else if (!economyManager.getAccountIndex().contains(uuid)) {
+            findings.unindexedRows.add(uuid);
+            if (repair) unindexed.add(row);
+        } else if (Money.toMinor(economyManager.getAccountIndex().getBalance(uuid, 0.0)) != stored) {
+            findings.balanceMismatches.add(uuid);
+            if (repair) reindex.add(row);
+        }
+    }
+
+    private void writeMissingRow(Connection connection, UUID uuid) throws SQLException {
+        String name = economyManager.getAccountName(uuid);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO players (uuid, balance, username) VALUES (?, ?, ?) ON CONFLICT (uuid) DO NOTHING")) {
+            insert.setBytes(1, Uuids.toBytes(uuid));
+            insert.setLong(2, Money.toMinor(economyManager.getAccountIndex().getBalance(uuid, 0.0)));
+            insert.setString(3, name != null ? name : uuid.toString());
+            insert.executeUpdate();
+        }
+    }
+
+    private static byte[] leafKey(int leaf) {
+        return new byte[]{(byte) (leaf >>> 8), (byte) leaf};
+    }
+
+    private void log(Report report) {
+        String summary = String.format("Consistency audit of %d accounts in %d ms: %d mismatched leaves, " +
+                        "%d balance mismatches, %d missing rows, %d unindexed rows, %d unsaved cached balances%s",
+                report.accounts(), report.millis(), report.mismatchedLeaves(), report.balanceMismatches(),
+                report.missingRows(), report.unindexedRows(), report.unsavedCached(),
+                report.discrepancies() > 0 ? (report.repaired() ? " (repaired)" : " (not repaired, set audit.repair to fix)") : "");
+        if (report.discrepancies() > 0) plugin.getLogger().warning(summary);
+        else plugin.getLogger().info(summary);
+    }
+}
@@ -0,0 +1,121 @@
+package dev.m7med.economysystem.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+/**
+ * Case-insensitive prefix completion over every known username.
+ *
+ * <p>Most names sit in an immutable sorted array searched with a binary search, which
+ * costs a reference and the string per name. Names added since the array was built go to
+ * a small concurrent skip list; {@link #compact} folds them into a new array off the main
+ * thread. Names are never removed eagerly: a rename leaves the old name behind, and
+ * callers pass a predicate that drops names no longer held by any account, both when
+ * completing and when compacting.
+ */
+public final class NameCompletions {
+
+    private volatile String[] sorted = new String[0];
+    private final ConcurrentSkipListSet<String> recent = new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    public void add(String name) {
+        if (name != null && !name.isEmpty()) recent.add(name);
+    }
+
+    /**
+     * Replaces everything with {@code names}, plus whatever was added meanwhile.
+     */
+    public synchronized void rebuild(Collection<String> names, Predicate<String> current) {
+        List<String> folded = new ArrayList<>(recent);
+        List<String> all = new ArrayList<>(names);
+        all.addAll(folded);
+        publish(all, folded, current);
+    }
+
+    /**
+     * Folds recently added names into the sorted array and drops stale ones.
+     */
+    public synchronized void compact(Predicate<String> current) {
+        if (recent.isEmpty()) return;
+        List<String> folded = new ArrayList<>(recent);
+        List<String> all = new ArrayList<>(Arrays.asList(sorted));
+        all.addAll(folded);
+        publish(all, folded, current);
+    }
+
+    private void publish(List<String> names, List<String> folded, Predicate<String> current) {
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        List<String> unique = new ArrayList<>(names.size());
+        String previous = null;
+        for (String name : names) {
+            if (previous != null && previous.equalsIgnoreCase(name)) continue;
+            previous = name;
+            if (current.test(name)) unique.add(name);
+        }
+        sorted = unique.toArray(String[]::new);
+        // Only what was folded in leaves the overlay; names added during the rebuild stay for next time.
+        folded.forEach(recent::remove);
+    }
+
+    /**
+     * Up to {@code limit} names starting with {@code prefix}, ignoring case, in case-insensitive order.
+     */
+    public List<String> complete(String prefix, int limit, Predicate<String> current) {
+        String[] names = sorted;
+        int index = lowerBound(names, prefix);
+        NavigableSet<String> tail = recent.tailSet(prefix, true);
+        Iterator<String> overlay = tail.iterator();
+        String fromOverlay = nextMatching(overlay, prefix);
+
+        List<String> matches = new ArrayList<>(Math.min(limit, 32));
+        String last = null;
+        while (matches.size() < limit) {
+            String fromArray = index < names.length && startsWithIgnoreCase(names[index], prefix) ? names[index] : null;
+            String next;
+            if (fromArray == null && fromOverlay == null) break;
+            if (fromOverlay == null || (fromArray != null && String.CASE_INSENSITIVE_ORDER.compare(fromArray, fromOverlay) <= 0)) {
+                next = fromArray;
+                index++;
+            } else {
+                next = fromOverlay;
+                fromOverlay = nextMatching(overlay, prefix);
+            }
+            if (last != null && last.equalsIgnoreCase(next)) continue;
+            if (!current.test(next)) continue;
+            matches.add(next);
+            last = next;
+        }
+        return matches;
+    }
+
+    public int size() {
+        return sorted.length + recent.size();
+    }
+
+    private static String nextMatching(Iterator<String> names, String prefix) {
+        if (!names.hasNext()) return null;
+        String name = names.next();
+        return startsWithIgnoreCase(name, prefix) ? name : null;
+    }
+
+    private static boolean startsWithIgnoreCase(String name, String prefix) {
+        return name.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static int lowerBound(String[] names, String prefix) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(names[mid], prefix) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
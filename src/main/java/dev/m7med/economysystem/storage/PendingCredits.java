@@ -0,0 +1,107 @@
+package dev.m7med.economysystem.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Money sent to offline accounts, kept in {@code pending_credits} until the owner next loads.
+ *
+ * <p>Credits are only ever appended while the owner is away. An account's spendable balance is
+ * its row plus its unapplied credits. Anything that needs the balance of an offline account in
+ * one step can {@link #settle} the credits into the row; they stay listed, marked applied, so
+ * the join summary still counts them. {@link #take} applies and removes everything when the
+ * account loads.
+ */
+public final class PendingCredits {
+
+    /**
+     * A credit waiting to be appended, in minor units.
+     */
+    public record Credit(UUID uuid, long amount, long created) {
+    }
+
+    /**
+     * What an account received while offline. {@code unapplied} still has to be added to its row.
+     */
+    public record Summary(int count, long total, long unapplied) {
+
+        public static final Summary EMPTY = new Summary(0, 0, 0);
+    }
+
+    /**
+     * Unapplied credits of the {@code players} row in scope, in minor units. For use inside queries over {@code players}.
+     */
+    public static final String UNAPPLIED_SQL = "(SELECT IFNULL(SUM(amount), 0) FROM pending_credits " +
+            "WHERE pending_credits.uuid = players.uuid AND applied = 0)";
+
+    private PendingCredits() {
+    }
+
+    public static void append(Connection connection, Collection<Credit> credits) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO pending_credits (uuid, amount, created) VALUES (?, ?, ?)")) {
+            for (Credit credit : credits) {
+                insert.setBytes(1, Uuids.toBytes(credit.uuid()));
+                insert.setLong(2, credit.amount());
+                insert.setLong(3, credit.created());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Unapplied credits of one account, in minor units.
+     */
+    public static long unapplied(Connection connection, UUID uuid) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT IFNULL(SUM(amount), 0) FROM pending_credits WHERE uuid = ? AND applied = 0")) {
+            statement.setBytes(1, Uuids.toBytes(uuid));
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Marks an account's credits applied and returns their sum, which the caller must add to the row
+     * in the same transaction.
+     */
+    public static long settle(Connection connection, UUID uuid) throws SQLException {
+        long amount = unapplied(connection, uuid);
+        if (amount == 0) return 0;
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE pending_credits SET applied = 1 WHERE uuid = ? AND applied = 0")) {
+            update.setBytes(1, Uuids.toBytes(uuid));
+            update.executeUpdate();
+        }
+        return amount;
+    }
+
+    /**
+     * Removes every credit of an account. The caller must add {@link Summary#unapplied()} to the row
+     * in the same transaction.
+     */
+    public static Summary take(Connection connection, UUID uuid) throws SQLException {
+        byte[] key = Uuids.toBytes(uuid);
+        Summary summary;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COUNT(*), IFNULL(SUM(amount), 0), IFNULL(SUM(CASE WHEN applied = 0 THEN amount END), 0) " +
+                        "FROM pending_credits WHERE uuid = ?")) {
+            statement.setBytes(1, key);
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next() || result.getInt(1) == 0) return Summary.EMPTY;
+                summary = new Summary(result.getInt(1), result.getLong(2), result.getLong(3));
+            }
+        }
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM pending_credits WHERE uuid = ?")) {
+            delete.setBytes(1, key);
+            delete.executeUpdate();
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,198 @@
+package dev.m7med.economysystem.storage;
+
+import dev.m7med.economysystem.Money;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Moves the database forward to the current schema, one numbered step at a time. The
+ * version reached is kept in SQLite's {@code PRAGMA user_version}; each step runs in its own
+ * transaction together with the version bump, so an interrupted upgrade resumes at the step
+ * that failed. Databases written before versioning existed report version 0 and start at
+ * step 1, which only creates what is missing.
+ *
+ * <p>New steps go at the end of {@link #MIGRATIONS}. Never edit a step that has shipped.
+ */
+public final class SchemaMigrations {
+
+    /**
+     * The work of one step. Anything it has to tell the operator goes to {@code logger}.
+     */
+    @FunctionalInterface
+    private interface Step {
+        void run(Connection connection, Logger logger) throws SQLException;
+    }
+
+    private record Migration(int version, String description, Step work) {
+    }
+
+    /**
+     * Strips the dashes from a textual UUID column and decodes it to its 16 byte key.
+     */
+    private static String uuidKey(String column) {
+        return "unhex(replace(" + column + ", '-', ''))";
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "original schema", (connection, logger) -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS players (" +
+                            "uuid TEXT PRIMARY KEY," +
+                            "balance REAL DEFAULT 0," +
+                            "username TEXT NOT NULL)");
+                    statement.execute("CREATE TABLE IF NOT EXISTS payout_runs (" +
+                            "job TEXT NOT NULL," +
+                            "period INTEGER NOT NULL," +
+                            "online_done INTEGER NOT NULL DEFAULT 0," +
+                            "cursor TEXT NOT NULL DEFAULT ''," +
+                            "completed INTEGER NOT NULL DEFAULT 0," +
+                            "PRIMARY KEY (job, period))");
+                    statement.execute("CREATE TABLE IF NOT EXISTS payout_online (" +
+                            "job TEXT NOT NULL," +
+                            "period INTEGER NOT NULL," +
+                            "uuid TEXT NOT NULL," +
+                            "PRIMARY KEY (job, period, uuid))");
+                }
+            }),
+            new Migration(2, "binary UUID keys and integer minor-unit balances", (connection, logger) -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TABLE players_new (" +
+                            "uuid BLOB NOT NULL PRIMARY KEY CHECK (length(uuid) = 16)," +
+                            "balance INTEGER NOT NULL DEFAULT 0," +
+                            "username TEXT NOT NULL) WITHOUT ROWID");
+                    // Rows whose key is not a valid UUID could never be loaded anyway and are dropped.
+                    // They stay in the backup taken before migrating; their keys are logged so they can be found there.
+                    String invalid = "NOT (length(uuid) = 36 AND " + uuidKey("uuid") + " IS NOT NULL)";
+                    List<String> dropped = new ArrayList<>();
+                    try (ResultSet result = statement.executeQuery("SELECT uuid FROM players WHERE uuid IS NULL OR " + invalid)) {
+                        while (result.next()) dropped.add(String.valueOf(result.getString("uuid")));
+                    }
+                    if (!dropped.isEmpty()) {
+                        logger.warning("Dropping " + dropped.size() + " player rows whose key is not a valid UUID: " +
+                                String.join(", ", dropped));
+                    }
+                    statement.execute("INSERT INTO players_new (uuid, balance, username) " +
+                            "SELECT " + uuidKey("uuid") + ", CAST(ROUND(COALESCE(balance, 0) * " + Money.MINOR_PER_UNIT + ") AS INTEGER), username " +
+                            "FROM players WHERE length(uuid) = 36 AND " + uuidKey("uuid") + " IS NOT NULL");
+                    statement.execute("DROP TABLE players");
+                    statement.execute("ALTER TABLE players_new RENAME TO players");
+
+                    statement.execute("CREATE TABLE payout_runs_new (" +
+                            "job TEXT NOT NULL," +
+                            "period INTEGER NOT NULL," +
+                            "online_done INTEGER NOT NULL DEFAULT 0," +
+                            "cursor BLOB NOT NULL DEFAULT X''," +
+                            "completed INTEGER NOT NULL DEFAULT 0," +
+                            "PRIMARY KEY (job, period))");
+                    statement.execute("INSERT INTO payout_runs_new (job, period, online_done, cursor, completed) " +
+                            "SELECT job, period, online_done, " +
+                            "CASE WHEN cursor = '' THEN X'' ELSE " + uuidKey("cursor") + " END, completed FROM payout_runs");
+                    statement.execute("DROP TABLE payout_runs");
+                    statement.execute("ALTER TABLE payout_runs_new RENAME TO payout_runs");
+
+                    statement.execute("CREATE TABLE payout_online_new (" +
+                            "job TEXT NOT NULL," +
+                            "period INTEGER NOT NULL," +
+                            "uuid BLOB NOT NULL," +
+                            "PRIMARY KEY (job, period, uuid)) WITHOUT ROWID");
+                    statement.execute("INSERT INTO payout_online_new (job, period, uuid) " +
+                            "SELECT job, period, " + uuidKey("uuid") + " FROM payout_online " +
+                            "WHERE " + uuidKey("uuid") + " IS NOT NULL");
+                    statement.execute("DROP TABLE payout_online");
+                    statement.execute("ALTER TABLE payout_online_new RENAME TO payout_online");
+                }
+            }),
+            new Migration(3, "balance and case-insensitive username indexes", (connection, logger) -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE INDEX players_balance ON players (balance DESC)");
+                    statement.execute("CREATE INDEX players_username ON players (username COLLATE NOCASE)");
+                }
+            }),
+            new Migration(4, "last seen timestamps", (connection, logger) -> {
+                try (Statement statement = connection.createStatement()) {
+                    // Epoch milliseconds of the last save while the player was online, 0 if never recorded.
+                    statement.execute("ALTER TABLE players ADD COLUMN last_seen INTEGER NOT NULL DEFAULT 0");
+                }
+            }),
+            new Migration(5, "pending credits for offline accounts", (connection, logger) -> {
+                try (Statement statement = connection.createStatement()) {
+                    // A rowid table, so new credits are appended at the end of the tree.
+                    statement.execute("CREATE TABLE pending_credits (" +
+                            "id INTEGER PRIMARY KEY," +
+                            "uuid BLOB NOT NULL," +
+                            "amount INTEGER NOT NULL," +
+                            "created INTEGER NOT NULL," +
+                            "applied INTEGER NOT NULL DEFAULT 0)");
+                    statement.execute("CREATE INDEX pending_credits_uuid ON pending_credits (uuid)");
+                }
+            })
+    );
+
+    public static final int LATEST = MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Applies every pending step. An existing database is first copied next to {@code path}
+     * as {@code <path>.v<version>.bak}, so a failed upgrade can be rolled back by hand.
+     */
+    public static void migrate(Connection connection, String path, Logger logger) throws SQLException {
+        int current = userVersion(connection);
+        if (current > LATEST) {
+            throw new SQLException("Database schema version " + current +
+                    " is newer than this plugin supports (" + LATEST + ")");
+        }
+        if (current == LATEST) return;
+
+        if (current > 0 || tableExists(connection, "players")) {
+            String backup = path + ".v" + current + ".bak";
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("VACUUM INTO '" + backup.replace("'", "''") + "'");
+            }
+            logger.info("Backed up the database to " + backup + " before upgrading its schema");
+        }
+
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version() <= current) continue;
+            long started = System.nanoTime();
+            connection.setAutoCommit(false);
+            try {
+                migration.work().run(connection, logger);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA user_version = " + migration.version());
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw new SQLException("Schema migration " + migration.version() +
+                        " (" + migration.description() + ") failed: " + e.getMessage(), e);
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            logger.info(String.format("Migrated database to schema version %d (%s) in %d ms",
+                    migration.version(), migration.description(), (System.nanoTime() - started) / 1_000_000));
+        }
+    }
+
+    public static int userVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("PRAGMA user_version")) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+            return result.next();
+        }
+    }
+}
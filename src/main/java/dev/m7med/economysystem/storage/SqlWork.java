@@ -0,0 +1,12 @@
+package dev.m7med.economysystem.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of database work run by {@link dev.m7med.economysystem.EconomyManager#inTransaction}.
+ */
+@FunctionalInterface
+public interface SqlWork<T> {
+    T run(Connection connection) throws SQLException;
+}
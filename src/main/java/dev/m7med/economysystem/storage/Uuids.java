@@ -0,0 +1,30 @@
+package dev.m7med.economysystem.storage;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * UUIDs as the 16 byte big-endian keys stored in the database. SQLite orders these BLOBs
+ * as unsigned bytes, which is not {@link UUID#compareTo}'s signed order, so range scans
+ * over keys rely only on the BLOB order and derive their bounds from the raw bytes.
+ */
+public final class Uuids {
+
+    private Uuids() {
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            throw new IllegalArgumentException("expected a 16 byte UUID key");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,91 @@
+package dev.m7med.economysystem.soak;
+
+import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.anomaly.FlowMonitor;
+import dev.m7med.economysystem.event.BalanceChangeEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Times {@link FlowMonitor#onBalanceChange} over a fixed set of accounts. The single-threaded
+ * figure is what the server pays, since balance changes are delivered to observers one thread
+ * at a time; the multi-threaded rows show what the shared heavy-hitter lock would cost if they
+ * were not.
+ *
+ * <p>Run with {@code ./gradlew flowBenchmark --args="5000 4"} for 5000 accounts and up to 4 threads.
+ */
+public class FlowBenchmark {
+
+    private static final int CHANGES_PER_THREAD = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        File dataFolder = Files.createTempDirectory("economy-flow").toFile();
+        Stubs.SimulatedServer server = new Stubs.SimulatedServer(new SimulatedScheduler(50));
+        Plugin plugin = server.plugin(dataFolder);
+        EconomyManager economyManager = new EconomyManager(plugin, new File(dataFolder, "economy.db").getAbsolutePath());
+        UUID[] uuids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            uuids[i] = UUID.randomUUID();
+        }
+
+        System.out.printf("%d accounts, %d changes per thread%n", accounts, CHANGES_PER_THREAD);
+        System.out.printf("%-8s %12s %14s%n", "threads", "ns/change", "changes/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            FlowMonitor monitor = new FlowMonitor(plugin, economyManager);
+            // The first pass warms up the JIT and fills the windows; only the second is reported.
+            run(monitor, uuids, threads);
+            long nanos = run(monitor, uuids, threads);
+            long changes = (long) CHANGES_PER_THREAD * threads;
+            System.out.printf("%-8d %12.1f %14.0f%n", threads, (double) nanos * threads / changes, changes / (nanos / 1e9));
+        }
+        economyManager.closeConnection();
+        server.scheduler().shutdown();
+    }
+
+    /**
+     * Wall-clock nanoseconds for every thread to deliver its changes.
+     */
+    private static long run(FlowMonitor monitor, UUID[] uuids, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+                    UUID account = uuids[random.nextInt(uuids.length)];
+                    double amount = random.nextInt(1, 10_000) / 100.0;
+                    boolean deposit = random.nextBoolean();
+                    monitor.onBalanceChange(account, 1000, deposit ? 1000 + amount : 1000 - amount,
+                            deposit ? BalanceChangeEvent.Cause.DEPOSIT : BalanceChangeEvent.Cause.WITHDRAW);
+                }
+                done.countDown();
+            }, "Flow benchmark " + t);
+            worker.start();
+            workers.add(worker);
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - started;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,65 @@
+package dev.m7med.economysystem.soak;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two major buckets split into 16 linear
+ * sub-buckets, so percentiles are accurate to about 6% without storing samples.
+ */
+public class LatencyRecorder {
+
+    private static final int SUB_BUCKETS = 16;
+    private static final int MAJOR_BUCKETS = 40;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(MAJOR_BUCKETS * SUB_BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos, boolean success) {
+        counts.incrementAndGet(indexOf(Math.max(1, nanos)));
+        total.increment();
+        if (!success) failures.increment();
+    }
+
+    private static int indexOf(long nanos) {
+        int major = 63 - Long.numberOfLeadingZeros(nanos);
+        if (major < 4) return (int) nanos;
+        int sub = (int) ((nanos >>> (major - 4)) & (SUB_BUCKETS - 1));
+        return Math.min((major - 3) * SUB_BUCKETS + sub, MAJOR_BUCKETS * SUB_BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int major = index / SUB_BUCKETS + 3;
+        int sub = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (major - 4)) - 1;
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long percentile(double percentile) {
+        long target = (long) Math.ceil(count() * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(1, target)) return upperBoundOf(i);
+        }
+        return 0;
+    }
+
+    public String summary(double seconds) {
+        long count = count();
+        return String.format("%-14s %10d ops %10.0f ops/s  fail %-8d p50 %8.1fus  p95 %8.1fus  p99 %8.1fus  p99.9 %8.1fus",
+                name, count, count / seconds, failures.sum(),
+                percentile(50) / 1000.0, percentile(95) / 1000.0,
+                percentile(99) / 1000.0, percentile(99.9) / 1000.0);
+    }
+}
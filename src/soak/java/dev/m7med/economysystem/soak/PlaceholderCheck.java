@@ -0,0 +1,89 @@
+package dev.m7med.economysystem.soak;
+
+import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.Money;
+import dev.m7med.economysystem.placeholder.BalancePlaceholders;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Checks {@link BalancePlaceholders} against brute force on a simulated server and reports
+ * how long each placeholder takes to resolve.
+ *
+ * <p>Run with {@code ./gradlew placeholderCheck --args="100000"}.
+ */
+public class PlaceholderCheck {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        File dataFolder = Files.createTempDirectory("economy-placeholders").toFile();
+        Stubs.SimulatedServer server = new Stubs.SimulatedServer(new SimulatedScheduler(50));
+        Plugin plugin = server.plugin(dataFolder);
+        EconomyManager economyManager = new EconomyManager(plugin, new File(dataFolder, "economy.db").getAbsolutePath());
+        BalancePlaceholders placeholders = new BalancePlaceholders(plugin, economyManager);
+        economyManager.addObserver(placeholders);
+
+        UUID[] uuids = new UUID[accounts];
+        long[] balances = new long[accounts];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < accounts; i++) {
+            uuids[i] = UUID.randomUUID();
+            economyManager.createAccount(uuids[i], "Player" + i);
+            economyManager.setBalance(uuids[i], random.nextInt(1_000_000) / 100.0);
+            balances[i] = Money.toMinor(economyManager.getBalance(uuids[i]));
+        }
+
+        long start = System.nanoTime();
+        placeholders.refresh();
+        System.out.printf("%d new accounts ranked in %.1f ms%n", accounts, (System.nanoTime() - start) / 1e6);
+
+        for (int change = 0; change < 1000; change++) {
+            int i = random.nextInt(accounts);
+            economyManager.setBalance(uuids[i], random.nextInt(1_000_000) / 100.0);
+            balances[i] = Money.toMinor(economyManager.getBalance(uuids[i]));
+        }
+        start = System.nanoTime();
+        placeholders.refresh();
+        System.out.printf("1000 changes applied in %.2f ms%n", (System.nanoTime() - start) / 1e6);
+
+        long[] sorted = balances.clone();
+        Arrays.sort(sorted);
+        int failures = 0;
+        for (int sample = 0; sample < 1000; sample++) {
+            int i = random.nextInt(accounts);
+            int higher = 0;
+            for (long balance : sorted) {
+                if (balance > balances[i]) higher++;
+            }
+            if (placeholders.rank(uuids[i]) != higher + 1) failures++;
+            if (!placeholders.resolve(uuids[i], "balance").equals(String.format("%.2f", balances[i] / 100.0))) failures++;
+        }
+        String richest = placeholders.resolve(null, "top_1_name");
+        UUID richestAccount = economyManager.findAccount(richest);
+        if (richestAccount == null || Money.toMinor(economyManager.getBalance(richestAccount)) != sorted[accounts - 1]) {
+            failures++;
+        }
+
+        for (String params : new String[]{"balance", "balance_formatted", "rank", "top_3_name"}) {
+            LatencyRecorder recorder = new LatencyRecorder(params);
+            long began = System.nanoTime();
+            for (int call = 0; call < 1_000_000; call++) {
+                UUID uuid = uuids[call % 500];
+                long before = System.nanoTime();
+                placeholders.resolve(uuid, params);
+                recorder.record(System.nanoTime() - before, true);
+            }
+            System.out.println(recorder.summary((System.nanoTime() - began) / 1e9));
+        }
+
+        economyManager.closeConnection();
+        server.scheduler().shutdown();
+        System.out.println(failures == 0 ? "RESULT: placeholders match brute force" : "RESULT: " + failures + " mismatches");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,137 @@
+package dev.m7med.economysystem.soak;
+
+import dev.m7med.economysystem.storage.SchemaMigrations;
+import dev.m7med.economysystem.storage.Uuids;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * Builds a database in the original schema, times the queries the server runs against it,
+ * migrates it in place with {@link SchemaMigrations} and times the same queries again.
+ *
+ * <p>Run with {@code ./gradlew schemaBenchmark --args="200000"}.
+ */
+public class SchemaBenchmark {
+
+    private interface Query {
+        void run(int iteration) throws SQLException;
+    }
+
+    private final int rows;
+    private final UUID[] uuids;
+    private final String[] names;
+
+    private SchemaBenchmark(int rows) {
+        this.rows = rows;
+        this.uuids = new UUID[rows];
+        this.names = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            uuids[i] = UUID.randomUUID();
+            names[i] = "Player" + i;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        new SchemaBenchmark(rows).run();
+    }
+
+    private void run() throws Exception {
+        File database = new File(Files.createTempDirectory("economy-schema").toFile(), "economy.db");
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database.getAbsolutePath())) {
+            populateOriginal(connection);
+            System.out.printf("%d rows, original schema, %d KB%n", rows, database.length() / 1024);
+            double[] before = measure(connection, false);
+
+            long started = System.nanoTime();
+            SchemaMigrations.migrate(connection, database.getAbsolutePath(), Logger.getLogger("SchemaBenchmark"));
+            System.out.printf("migrated to version %d in %d ms, %d KB%n", SchemaMigrations.userVersion(connection),
+                    (System.nanoTime() - started) / 1_000_000, database.length() / 1024);
+            double[] after = measure(connection, true);
+
+            String[] labels = {"top 10 by balance", "name lookup (any case)", "uuid lookup", "count above 9000"};
+            System.out.printf("%n%-24s %14s %14s %9s%n", "query", "before (us)", "after (us)", "speedup");
+            for (int i = 0; i < labels.length; i++) {
+                System.out.printf("%-24s %14.1f %14.1f %8.1fx%n", labels[i], before[i], after[i], before[i] / after[i]);
+            }
+        }
+    }
+
+    private void populateOriginal(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE players (uuid TEXT PRIMARY KEY, balance REAL DEFAULT 0, username TEXT NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO players (uuid, balance, username) VALUES (?, ?, ?)")) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, uuids[i].toString());
+                insert.setDouble(2, random.nextInt(1_000_000) / 100.0);
+                insert.setString(3, names[i]);
+                insert.addBatch();
+                if (i % 10_000 == 9_999) insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private double[] measure(Connection connection, boolean migrated) throws SQLException {
+        try (PreparedStatement top = connection.prepareStatement("SELECT username, balance FROM players ORDER BY balance DESC LIMIT 10");
+             PreparedStatement byName = connection.prepareStatement("SELECT uuid FROM players WHERE username = ? COLLATE NOCASE");
+             PreparedStatement byUuid = connection.prepareStatement("SELECT balance FROM players WHERE uuid = ?");
+             PreparedStatement rich = connection.prepareStatement("SELECT COUNT(*) FROM players WHERE balance > ?")) {
+            double[] results = new double[4];
+            results[0] = time(20, iteration -> drain(top));
+            results[1] = time(200, iteration -> {
+                byName.setString(1, names[(iteration * 7919) % rows].toUpperCase());
+                drain(byName);
+            });
+            results[2] = time(2_000, iteration -> {
+                UUID uuid = uuids[(iteration * 7919) % rows];
+                if (migrated) byUuid.setBytes(1, Uuids.toBytes(uuid));
+                else byUuid.setString(1, uuid.toString());
+                drain(byUuid);
+            });
+            results[3] = time(20, iteration -> {
+                if (migrated) rich.setLong(1, 900_000L);
+                else rich.setDouble(1, 9000.0);
+                drain(rich);
+            });
+            return results;
+        }
+    }
+
+    private static void drain(PreparedStatement statement) throws SQLException {
+        try (ResultSet result = statement.executeQuery()) {
+            while (result.next()) {
+                result.getObject(1);
+            }
+        }
+    }
+
+    /**
+     * Average microseconds per run after a warm-up of the same length.
+     */
+    private static double time(int iterations, Query query) throws SQLException {
+        for (int i = 0; i < iterations; i++) {
+            query.run(i);
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            query.run(i);
+        }
+        return (System.nanoTime() - started) / 1_000.0 / iterations;
+    }
+}
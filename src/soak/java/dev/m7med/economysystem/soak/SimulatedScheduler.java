@@ -0,0 +1,146 @@
+package dev.m7med.economysystem.soak;
+
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the Bukkit scheduler. Sync tasks run on a single "Server thread",
+ * async tasks on a cached pool, and ticks are {@code tickMillis} long so long runs
+ * can be compressed.
+ */
+public class SimulatedScheduler implements InvocationHandler {
+
+    private final long tickMillis;
+    private final ScheduledExecutorService mainThread;
+    private final ScheduledExecutorService asyncTimers;
+    private final ExecutorService asyncPool;
+    private final AtomicInteger taskIds = new AtomicInteger();
+    private volatile Thread primaryThread;
+
+    public SimulatedScheduler(long tickMillis) {
+        this.tickMillis = tickMillis;
+        this.mainThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Server thread");
+            primaryThread = thread;
+            return thread;
+        });
+        this.asyncTimers = Executors.newScheduledThreadPool(2, runnable -> daemon(runnable, "Async timer"));
+        this.asyncPool = Executors.newCachedThreadPool(runnable -> daemon(runnable, "Craft Scheduler Thread"));
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public BukkitScheduler asBukkitScheduler() {
+        return (BukkitScheduler) Proxy.newProxyInstance(
+                BukkitScheduler.class.getClassLoader(), new Class<?>[]{BukkitScheduler.class}, this);
+    }
+
+    public boolean isPrimaryThread() {
+        return Thread.currentThread() == primaryThread;
+    }
+
+    public ScheduledExecutorService mainThread() {
+        return mainThread;
+    }
+
+    public long tickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Waits until every async task submitted so far has finished.
+     */
+    public void drainAsync() throws Exception {
+        asyncPool.submit(() -> { }).get();
+        for (int i = 0; i < 3; i++) {
+            // Tasks submitted from other async tasks land behind the first marker.
+            Thread.sleep(tickMillis);
+            asyncPool.submit(() -> { }).get();
+        }
+    }
+
+    public void shutdown() throws InterruptedException {
+        mainThread.shutdown();
+        asyncTimers.shutdownNow();
+        asyncPool.shutdown();
+        mainThread.awaitTermination(10, TimeUnit.SECONDS);
+        asyncPool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("isCurrentlyRunning") || name.equals("isQueued")) return false;
+        if (!name.startsWith("runTask") && !name.startsWith("scheduleSync")) {
+            return Stubs.defaultValue(method.getReturnType());
+        }
+
+        Runnable task = null;
+        long delay = 0;
+        long period = -1;
+        int longIndex = 0;
+        for (Object arg : args) {
+            if (arg instanceof Runnable runnable) {
+                task = runnable;
+            } else if (arg instanceof Long value) {
+                if (longIndex++ == 0) delay = value; else period = value;
+            }
+        }
+        if (task == null) {
+            throw new UnsupportedOperationException("Simulated scheduler only supports Runnable tasks: " + method);
+        }
+
+        boolean async = name.contains("Asynchronously");
+        if (name.contains("Later") || name.contains("Timer")) {
+            delay = Math.max(delay, 1);
+        }
+        Future<?> future = submit(task, async, delay, period);
+        return scheduledTask(future, async);
+    }
+
+    private Future<?> submit(Runnable task, boolean async, long delayTicks, long periodTicks) {
+        long delay = delayTicks * tickMillis;
+        if (!async) {
+            return periodTicks > 0
+                    ? mainThread.scheduleAtFixedRate(task, delay, periodTicks * tickMillis, TimeUnit.MILLISECONDS)
+                    : mainThread.schedule(task, delay, TimeUnit.MILLISECONDS);
+        }
+        if (periodTicks > 0) {
+            return asyncTimers.scheduleAtFixedRate(() -> asyncPool.execute(task),
+                    delay, periodTicks * tickMillis, TimeUnit.MILLISECONDS);
+        }
+        if (delay == 0) {
+            return asyncPool.submit(task);
+        }
+        return asyncTimers.schedule(() -> asyncPool.execute(task), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private BukkitTask scheduledTask(Future<?> future, boolean async) {
+        int id = taskIds.incrementAndGet();
+        return (BukkitTask) Proxy.newProxyInstance(BukkitTask.class.getClassLoader(), new Class<?>[]{BukkitTask.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getTaskId" -> id;
+                    case "isSync" -> !async;
+                    case "isCancelled" -> future.isCancelled();
+                    case "cancel" -> {
+                        future.cancel(false);
+                        yield null;
+                    }
+                    default -> Stubs.defaultValue(method.getReturnType());
+                });
+    }
+}
@@ -0,0 +1,373 @@
+package dev.m7med.economysystem.soak;
+
+import dev.m7med.economysystem.EconomyManager;
+import dev.m7med.economysystem.JoinListener;
+import dev.m7med.economysystem.Money;
+import dev.m7med.economysystem.VaultAPI;
+import dev.m7med.economysystem.api.AsyncEconomyService;
+import dev.m7med.economysystem.api.EconomyService;
+import dev.m7med.economysystem.api.TransactionResult;
+import dev.m7med.economysystem.event.BalanceChangeStream;
+import dev.m7med.economysystem.storage.PendingCredits;
+import dev.m7med.economysystem.storage.Uuids;
+import net.kyori.adventure.text.Component;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Headless load and soak test. Drives {@link JoinListener}, {@link VaultAPI} and the
+ * {@link EconomyService} calls behind {@code /pay} and {@code /aeco give|take} with simulated
+ * players, online and offline, then checks that money is conserved, no update was lost and
+ * the database matches the cache after a flush.
+ *
+ * <p>Run with {@code ./gradlew soak --args="--players 5000 --duration 600"}.
+ */
+public class SoakHarness {
+
+    private static final class SimPlayer {
+        final UUID uuid;
+        final String name;
+        final Player player;
+        final OfflinePlayer offline;
+        final AtomicLong expected = new AtomicLong();
+        volatile boolean created;
+
+        SimPlayer(Stubs.SimulatedServer server, int index) {
+            this.uuid = UUID.randomUUID();
+            this.name = "Player" + index;
+            this.player = server.player(uuid, name);
+            this.offline = server.offlinePlayer(uuid, name);
+        }
+    }
+
+    private final Map<String, String> options;
+    private final Stubs.SimulatedServer server;
+    private final EconomyManager economyManager;
+    private final VaultAPI vaultAPI;
+    private final AsyncEconomyService economyService;
+    private final JoinListener joinListener;
+    private final File database;
+    private final SimPlayer[] players;
+    private final AtomicInteger onlineCount = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    private final LatencyRecorder joins = new LatencyRecorder("join");
+    private final LatencyRecorder quits = new LatencyRecorder("quit");
+    private final LatencyRecorder payments = new LatencyRecorder("pay");
+    private final LatencyRecorder adminOps = new LatencyRecorder("admin give/take");
+    private final LatencyRecorder offlineDeposits = new LatencyRecorder("offline give");
+    private final LatencyRecorder pluginDeposits = new LatencyRecorder("vault deposit");
+    private final LatencyRecorder pluginWithdrawals = new LatencyRecorder("vault withdraw");
+
+    public SoakHarness(Map<String, String> options) throws Exception {
+        this.options = options;
+        File dataFolder = Files.createTempDirectory("economy-soak").toFile();
+        this.database = new File(dataFolder, "economy.db");
+        this.server = new Stubs.SimulatedServer(new SimulatedScheduler(option("tick-millis", 50)));
+        Plugin plugin = server.plugin(dataFolder);
+        this.economyManager = new EconomyManager(plugin, database.getAbsolutePath());
+        this.vaultAPI = new VaultAPI(plugin, economyManager);
+        this.economyService = new AsyncEconomyService(plugin, economyManager, new BalanceChangeStream(plugin));
+        this.joinListener = new JoinListener(economyManager);
+
+        this.players = new SimPlayer[option("players", 5000)];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new SimPlayer(server, i);
+        }
+    }
+
+    private int option(String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        boolean passed = new SoakHarness(options).run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    public boolean run() throws Exception {
+        int durationSeconds = option("duration", 60);
+        int checkInterval = option("check-interval", 30);
+        int opsPerTick = option("ops-per-tick", 500);
+        int pluginThreads = option("plugin-threads", 4);
+        SimulatedScheduler scheduler = server.scheduler();
+
+        System.out.printf("Soak: %d players, %ds, %d ops/tick, %d plugin threads, %dms ticks%n",
+                players.length, durationSeconds, opsPerTick, pluginThreads, scheduler.tickMillis());
+
+        scheduler.mainThread().scheduleAtFixedRate(() -> tick(opsPerTick), 0, scheduler.tickMillis(), TimeUnit.MILLISECONDS);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < pluginThreads; i++) {
+            Thread worker = new Thread(this::pluginWorkload, "Plugin worker " + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        boolean passed = true;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(checkInterval),
+                    Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            passed &= checkpoint(false);
+        }
+
+        running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        scheduler.mainThread().submit(() -> { }).get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        passed &= checkpoint(true);
+        economyService.shutdown();
+        scheduler.shutdown();
+
+        System.out.println();
+        long totalOps = 0;
+        for (LatencyRecorder recorder : List.of(joins, quits, payments, adminOps, offlineDeposits, pluginDeposits, pluginWithdrawals)) {
+            System.out.println(recorder.summary(seconds));
+            totalOps += recorder.count();
+        }
+        System.out.printf("total          %10d ops %10.0f ops/s%n", totalOps, totalOps / seconds);
+        System.out.println(passed ? "RESULT: all invariants held" : "RESULT: invariant violations detected");
+        return passed;
+    }
+
+    private void tick(int opsPerTick) {
+        if (!running) return;
+        checkpointLock.readLock().lock();
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < opsPerTick && running; i++) {
+                int roll = random.nextInt(100);
+                if (roll < 4) join();
+                else if (roll < 8) quit();
+                else if (roll < 82) pay();
+                else if (roll < 92) admin();
+                else offlineDeposit();
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    private SimPlayer randomPlayer(boolean online) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < 16; attempt++) {
+            SimPlayer candidate = players[random.nextInt(players.length)];
+            if (server.isOnline(candidate.uuid) == online) return candidate;
+        }
+        return null;
+    }
+
+    /**
+     * Any player with an account, online or not.
+     */
+    private SimPlayer randomAccount() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < 16; attempt++) {
+            SimPlayer candidate = players[random.nextInt(players.length)];
+            if (candidate.created) return candidate;
+        }
+        return null;
+    }
+
+    private void join() {
+        SimPlayer target = randomPlayer(false);
+        if (target == null) return;
+
+        long started = System.nanoTime();
+        joinListener.onPlayerJoin(new PlayerJoinEvent(target.player, (Component) null));
+        joins.record(System.nanoTime() - started, true);
+        // Vault withdrawals only work on loaded accounts, so the player is only picked as
+        // online once the load has cached it.
+        while (!economyManager.hasAccount(target.uuid)) {
+            Thread.onSpinWait();
+        }
+        server.setOnline(target.player, true);
+
+        if (!target.created) {
+            target.created = true;
+            target.expected.set(economyManager.getDefaultBalance());
+        }
+        onlineCount.incrementAndGet();
+    }
+
+    private void quit() {
+        if (onlineCount.get() < players.length / 4) return;
+        SimPlayer target = randomPlayer(true);
+        if (target == null) return;
+
+        long started = System.nanoTime();
+        joinListener.onPlayerQuit(new PlayerQuitEvent(target.player, (Component) null, PlayerQuitEvent.QuitReason.DISCONNECTED));
+        server.setOnline(target.player, false);
+        quits.record(System.nanoTime() - started, true);
+        onlineCount.decrementAndGet();
+    }
+
+    /**
+     * What {@code /pay} does once its checks passed. Receivers may be offline.
+     */
+    private void pay() {
+        SimPlayer sender = randomPlayer(true);
+        SimPlayer receiver = randomAccount();
+        if (sender == null || receiver == null || sender == receiver) return;
+        long amount = ThreadLocalRandom.current().nextLong(1, 25);
+
+        track(payments, economyService.transfer(sender.uuid, receiver.uuid, amount), () -> {
+            sender.expected.addAndGet(-amount);
+            receiver.expected.addAndGet(amount);
+        });
+    }
+
+    /**
+     * What {@code /aeco give} and {@code /aeco take} do, on any account.
+     */
+    private void admin() {
+        SimPlayer target = randomAccount();
+        if (target == null) return;
+        long amount = ThreadLocalRandom.current().nextLong(1, 100);
+        boolean give = ThreadLocalRandom.current().nextBoolean();
+
+        track(adminOps, give ? economyService.deposit(target.uuid, amount) : economyService.adminWithdraw(target.uuid, amount),
+                () -> target.expected.addAndGet(give ? amount : -amount));
+    }
+
+    /**
+     * {@code /aeco give} to a player who is away, which queues a pending credit.
+     */
+    private void offlineDeposit() {
+        SimPlayer target = randomPlayer(false);
+        if (target == null || !target.created) return;
+        long amount = ThreadLocalRandom.current().nextLong(1, 100);
+
+        track(offlineDeposits, economyService.deposit(target.uuid, amount), () -> target.expected.addAndGet(amount));
+    }
+
+    /**
+     * Records an operation's latency when it completes and runs {@code onSuccess} if it did.
+     * Checkpoints wait for every tracked operation.
+     */
+    private void track(LatencyRecorder recorder, CompletableFuture<TransactionResult> operation, Runnable onSuccess) {
+        long started = System.nanoTime();
+        inFlight.incrementAndGet();
+        operation.whenComplete((result, error) -> {
+            boolean success = error == null && result.success();
+            recorder.record(System.nanoTime() - started, success);
+            if (success) onSuccess.run();
+            inFlight.decrementAndGet();
+        });
+    }
+
+    private void pluginWorkload() {
+        long pauseNanos = TimeUnit.MICROSECONDS.toNanos(option("plugin-pause-micros", 200));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            checkpointLock.readLock().lock();
+            try {
+                SimPlayer target = randomPlayer(true);
+                if (target != null) {
+                    long amount = random.nextLong(1, 50);
+                    boolean deposit = random.nextInt(3) != 0;
+                    long started = System.nanoTime();
+                    EconomyResponse response = deposit
+                            ? vaultAPI.depositPlayer(target.offline, amount)
+                            : vaultAPI.withdrawPlayer(target.offline, amount);
+                    (deposit ? pluginDeposits : pluginWithdrawals)
+                            .record(System.nanoTime() - started, response.transactionSuccess());
+                    if (response.transactionSuccess()) {
+                        target.expected.addAndGet(deposit ? amount : -amount);
+                    }
+                }
+            } finally {
+                checkpointLock.readLock().unlock();
+            }
+            LockSupport.parkNanos(pauseNanos);
+        }
+    }
+
+    /**
+     * Pauses the workload, drains async work, flushes the cache and verifies every account.
+     */
+    private boolean checkpoint(boolean last) throws Exception {
+        checkpointLock.writeLock().lock();
+        try {
+            while (inFlight.get() > 0) {
+                Thread.sleep(1);
+            }
+            server.scheduler().drainAsync();
+            economyManager.flush();
+            Map<UUID, Double> stored = readDatabase();
+
+            long expectedTotal = 0;
+            double actualTotal = 0;
+            int lostUpdates = 0;
+            int cacheMismatches = 0;
+            int accounts = 0;
+            for (SimPlayer simPlayer : players) {
+                if (!simPlayer.created) continue;
+                accounts++;
+                boolean cached = server.isOnline(simPlayer.uuid) && economyManager.hasAccount(simPlayer.uuid);
+                Double persisted = stored.get(simPlayer.uuid);
+                double actual = cached ? economyManager.getBalance(simPlayer.uuid) : persisted == null ? 0 : persisted;
+
+                expectedTotal += simPlayer.expected.get();
+                actualTotal += actual;
+                if (actual != simPlayer.expected.get()) lostUpdates++;
+                if (cached && (persisted == null || persisted != actual)) cacheMismatches++;
+            }
+
+            boolean passed = lostUpdates == 0 && cacheMismatches == 0 && actualTotal == expectedTotal;
+            System.out.printf("%s: %d accounts, %d online, total %.0f (expected %d), lost updates %d, db/cache mismatches %d -> %s%n",
+                    last ? "final check" : "checkpoint", accounts, onlineCount.get(), actualTotal, expectedTotal,
+                    lostUpdates, cacheMismatches, passed ? "OK" : "FAILED");
+            return passed;
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    private Map<UUID, Double> readDatabase() throws Exception {
+        Map<UUID, Double> balances = new HashMap<>();
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database.getAbsolutePath());
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "SELECT uuid, balance + " + PendingCredits.UNAPPLIED_SQL + " AS balance FROM players")) {
+            while (result.next()) {
+                balances.put(Uuids.fromBytes(result.getBytes("uuid")), Money.fromMinor(result.getLong("balance")));
+            }
+        }
+        return balances;
+    }
+}
@@ -0,0 +1,160 @@
+package dev.m7med.economysystem.soak;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Dynamic-proxy stand-ins for the parts of the Bukkit API the plugin touches.
+ * Anything not explicitly handled returns a zero value so unrelated calls are harmless.
+ */
+public final class Stubs {
+
+    private Stubs() {
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0F;
+        if (type == double.class) return 0D;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                    default -> handler.invoke(proxy, method, args);
+                });
+    }
+
+    /**
+     * A server with a simulated scheduler and a set of online players managed by the harness.
+     */
+    public static final class SimulatedServer {
+
+        private final SimulatedScheduler scheduler;
+        private final Map<UUID, Player> onlinePlayers = new ConcurrentHashMap<>();
+        private final Logger logger = Logger.getLogger("SimulatedServer");
+        private final Server server;
+        private final PluginManager pluginManager;
+
+        public SimulatedServer(SimulatedScheduler scheduler) {
+            this.scheduler = scheduler;
+            this.pluginManager = proxy(PluginManager.class, (proxy, method, args) -> defaultValue(method.getReturnType()));
+            this.server = proxy(Server.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getScheduler" -> scheduler.asBukkitScheduler();
+                case "getPluginManager" -> pluginManager;
+                case "isPrimaryThread" -> scheduler.isPrimaryThread();
+                case "getLogger" -> logger;
+                case "getOnlinePlayers" -> Collections.unmodifiableCollection(onlinePlayers.values());
+                case "getPlayer" -> args[0] instanceof UUID uuid ? onlinePlayers.get(uuid) : null;
+                case "getName" -> "SimulatedServer";
+                default -> defaultValue(method.getReturnType());
+            });
+        }
+
+        public Server server() {
+            return server;
+        }
+
+        public SimulatedScheduler scheduler() {
+            return scheduler;
+        }
+
+        public Collection<Player> onlinePlayers() {
+            return onlinePlayers.values();
+        }
+
+        public void setOnline(Player player, boolean online) {
+            if (online) onlinePlayers.put(player.getUniqueId(), player);
+            else onlinePlayers.remove(player.getUniqueId());
+        }
+
+        public boolean isOnline(UUID uuid) {
+            return onlinePlayers.containsKey(uuid);
+        }
+
+        /**
+         * A plugin whose config is the bundled {@code config.yml} and whose data folder is {@code dataFolder}.
+         */
+        public Plugin plugin(File dataFolder) {
+            FileConfiguration config = loadBundledConfig();
+            Logger pluginLogger = Logger.getLogger("EconomySystem");
+            return proxy(Plugin.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getConfig" -> config;
+                case "getServer" -> server;
+                case "getLogger" -> pluginLogger;
+                case "getDataFolder" -> dataFolder;
+                case "getName" -> "EconomySystem";
+                case "isEnabled" -> true;
+                default -> defaultValue(method.getReturnType());
+            });
+        }
+
+        /**
+         * A player that answers identity and online-state queries and swallows messages.
+         */
+        public Player player(UUID uuid, String name) {
+            return proxy(Player.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getUniqueId" -> uuid;
+                case "getName" -> name;
+                case "isOnline", "isConnected" -> isOnline(uuid);
+                case "hasPlayedBefore" -> true;
+                case "getPlayer" -> proxy;
+                case "getServer" -> server;
+                default -> defaultValue(method.getReturnType());
+            });
+        }
+
+        /**
+         * An offline handle for an account, as plugins receive from {@code Bukkit.getOfflinePlayer}.
+         */
+        public OfflinePlayer offlinePlayer(UUID uuid, String name) {
+            return proxy(OfflinePlayer.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getUniqueId" -> uuid;
+                case "getName" -> name;
+                case "isOnline", "isConnected" -> isOnline(uuid);
+                case "hasPlayedBefore" -> true;
+                case "getPlayer" -> onlinePlayers.get(uuid);
+                default -> defaultValue(method.getReturnType());
+            });
+        }
+
+        private static FileConfiguration loadBundledConfig() {
+            YamlConfiguration config = new YamlConfiguration();
+            try (Reader reader = new InputStreamReader(
+                    Stubs.class.getClassLoader().getResourceAsStream("config.yml"), StandardCharsets.UTF_8)) {
+                config.load(reader);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to load bundled config.yml", e);
+            }
+            return config;
+        }
+    }
+}